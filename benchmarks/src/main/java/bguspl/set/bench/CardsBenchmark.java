@@ -0,0 +1,86 @@
+package bguspl.set.bench;
+
+import bguspl.set.Config;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Benchmarks of the per-card operations of the Util implementation, on random candidate sets.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CardsBenchmark {
+
+    /**
+     * The number of random candidate sets.
+     */
+    private static final int CANDIDATES = 1024;
+
+    /**
+     * FeatureCount x FeatureSize.
+     */
+    @Param({"4x3", "6x3", "3x4"})
+    public String features;
+
+    private Util util;
+    private int[][] candidates;
+    private int[] batch;
+    private long[] legal;
+    private int candidate;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = features.split("x");
+        Properties properties = new Properties();
+        properties.put("FeatureCount", dimensions[0]);
+        properties.put("FeatureSize", dimensions[1]);
+        properties.put("LogLevel", "OFF");
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        util = new UtilImpl(config);
+
+        Random random = new Random(config.deckSize);
+        candidates = new int[CANDIDATES][];
+        for (int i = 0; i < CANDIDATES; ++i)
+            candidates[i] = random.ints(0, config.deckSize).distinct().limit(config.featureSize).toArray();
+        batch = Arrays.stream(candidates).flatMapToInt(Arrays::stream).toArray();
+        legal = new long[CANDIDATES / Long.SIZE];
+    }
+
+    @Benchmark
+    public boolean testSet() {
+        candidate = (candidate + 1) % CANDIDATES;
+        return util.testSet(candidates[candidate]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public int testSetsOneByOne() {
+        int sets = 0;
+        for (int[] cards : candidates)
+            if (util.testSet(cards)) ++sets;
+        return sets;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public int testSetsBitSliced() {
+        return util.testSets(batch, legal);
+    }
+
+    @Benchmark
+    public int[][] cardsToFeatures() {
+        candidate = (candidate + 1) % CANDIDATES;
+        return util.cardsToFeatures(candidates[candidate]);
+    }
+}
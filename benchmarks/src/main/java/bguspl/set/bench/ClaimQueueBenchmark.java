@@ -0,0 +1,118 @@
+package bguspl.set.bench;
+
+import bguspl.set.ex.ClaimQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Benchmarks of the latency of a claim (a call to the dealer) with 128 players calling at once and the dealer taking
+ * the claims, for the lock-free ClaimQueue and for the lock and list it replaced (copied below).
+ * The interrupt of the dealer thread is left out, as it is the same for both.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClaimQueueBenchmark {
+
+    private static final int PLAYERS = 128;
+
+    @State(Scope.Group)
+    public static class Claims {
+        private final ClaimQueue claims = new ClaimQueue(PLAYERS);
+        private final LegacyClaims legacyClaims = new LegacyClaims();
+        private final AtomicInteger players = new AtomicInteger();
+    }
+
+    @State(Scope.Thread)
+    public static class Player {
+        private int id;
+
+        @Setup
+        public void setUp(Claims claims) {
+            id = claims.players.getAndIncrement() % PLAYERS;
+        }
+    }
+
+    @Benchmark
+    @Group("lockFree")
+    @GroupThreads(PLAYERS)
+    public boolean claim(Claims claims, Player player) {
+        return claims.claims.offer(player.id);
+    }
+
+    @Benchmark
+    @Group("lockFree")
+    @GroupThreads(1)
+    public int dealer(Claims claims) {
+        return claims.claims.poll();
+    }
+
+    @Benchmark
+    @Group("legacy")
+    @GroupThreads(PLAYERS)
+    public boolean legacyClaim(Claims claims, Player player) {
+        return claims.legacyClaims.offer(player.id);
+    }
+
+    @Benchmark
+    @Group("legacy")
+    @GroupThreads(1)
+    public Integer legacyDealer(Claims claims) {
+        return claims.legacyClaims.poll();
+    }
+
+    /**
+     * The claims of the dealer before ClaimQueue: a list guarded by a lock letting the dealer go first.
+     */
+    static class LegacyClaims {
+        private final Logger logger = Logger.getAnonymousLogger();
+        private final LinkedList<Thread> threadQueue = new LinkedList<>();
+        private final LinkedList<Integer> calls = new LinkedList<>();
+        private boolean free = true;
+
+        LegacyClaims() {
+            logger.setUseParentHandlers(false);
+        }
+
+        boolean offer(int id) {
+            acquire(false);
+            boolean added = !calls.contains(id) && calls.add(id);
+            release();
+            return added;
+        }
+
+        Integer poll() {
+            acquire(true);
+            Integer id = calls.poll();
+            release();
+            return id;
+        }
+
+        private synchronized void acquire(boolean isDealer) {
+            logger.info(Thread.currentThread().getName() + " waiting for lock");
+            if (isDealer) threadQueue.add(0, Thread.currentThread());
+            else threadQueue.addLast(Thread.currentThread());
+            while (!free || Thread.currentThread() != threadQueue.getFirst()) {
+                try {
+                    wait();
+                } catch (InterruptedException ignored) {
+                }
+            }
+            logger.info(Thread.currentThread().getName() + " took lock");
+            free = false;
+            threadQueue.remove(0);
+        }
+
+        private synchronized void release() {
+            free = true;
+            logger.info(Thread.currentThread().getName() + " released lock");
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package bguspl.set.bench;
+
+import bguspl.set.Config;
+import bguspl.set.ParallelUtilImpl;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks of the set search of the Util implementations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FindSetsBenchmark {
+
+    /**
+     * FeatureCount x FeatureSize.
+     */
+    @Param({"4x3", "6x3", "3x4"})
+    public String features;
+
+    /**
+     * TABLE - only the cards on a 3x4 table, TABLE_AND_DECK - the whole deck (as in Dealer.shouldFinish).
+     */
+    @Param({"TABLE", "TABLE_AND_DECK"})
+    public String cards;
+
+    /**
+     * The maximum number of sets to find.
+     */
+    @Param({"1", "2147483647"})
+    public int count;
+
+    @Param({"sequential", "parallel"})
+    public String engine;
+
+    private Util util;
+    private List<Integer> deck;
+    private int[] deckArray;
+    private BitSet deckBits;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = features.split("x");
+        Properties properties = new Properties();
+        properties.put("FeatureCount", dimensions[0]);
+        properties.put("FeatureSize", dimensions[1]);
+        properties.put("LogLevel", "OFF");
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        util = engine.equals("parallel") ? new ParallelUtilImpl(config) : new UtilImpl(config);
+
+        Random random = new Random(config.deckSize);
+        List<Integer> shuffled = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(shuffled, random);
+        deck = new LinkedList<>(cards.equals("TABLE") ? shuffled.subList(0, config.tableSize) : shuffled);
+        deckArray = deck.stream().mapToInt(Integer::intValue).toArray();
+        deckBits = new BitSet(config.deckSize);
+        deck.forEach(deckBits::set);
+    }
+
+    @Benchmark
+    public List<int[]> findSets() {
+        return util.findSets(deck, count);
+    }
+
+    @Benchmark
+    public List<int[]> findSetsArray() {
+        return util.findSets(deckArray, count);
+    }
+
+    @Benchmark
+    public int countSets() {
+        return util.countSets(deckBits, count);
+    }
+}
@@ -36,6 +36,17 @@ public class Config {
      */
     public final int deckSize;
 
+    /**
+     * The minimal number of cards for which sets are searched in parallel (see ParallelUtilImpl)
+     */
+    public final int parallelSearchCards;
+
+    /**
+     * The minimal number of combinations of cards (or of claims checked together) for which candidate sets are tested
+     * in batches (see Util.testSets)
+     */
+    public final long bitSlicedTestCandidates;
+
     /**
      * The number of human players in the game.
      */
@@ -56,6 +67,50 @@ public class Config {
      */
     public final boolean hints;
 
+    /**
+     * Whether players place and remove tokens without taking the table lock (see Table)
+     */
+    public final boolean concurrentTable;
+
+    /**
+     * The file the table is mirrored to for players in other processes, and the file their token commands are read
+     * from (empty if none, see SharedTableBridge)
+     */
+    public final String sharedTableFile;
+    public final String sharedCommandsFile;
+
+    /**
+     * The number of commands that fit in the commands file
+     */
+    public final int sharedCommandsCapacity;
+
+    /**
+     * The number of microseconds between checks of the shared files
+     */
+    public final long sharedTablePollMicros;
+
+    /**
+     * The number of table events that may wait for each optional subscriber before more are dropped (see
+     * TableEventPublisher; the events of the user interface are never dropped)
+     */
+    public final int eventBufferSize;
+
+    /**
+     * Whether the dealer chooses the cards it deals so the table has a set whenever the deck can complete one
+     */
+    public final boolean guaranteeSetDeals;
+
+    /**
+     * Whether the dealer reshuffles as soon as the table has no set (instead of waiting for the turn to time out)
+     */
+    public final boolean reshuffleWithoutSet;
+
+    /**
+     * The time the dealer waits for claims made before the earliest one it has, so it can check them in the order they
+     * were made (0 to check the claims waiting right away, in that order)
+     */
+    public final long claimFairnessWindowMillis;
+
     /**
      * The number of milliseconds until the dealer reshuffles the deck (0 show timer since last action, -1 show nothing)
      */
@@ -197,6 +252,8 @@ public class Config {
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
+        parallelSearchCards = Integer.parseInt(properties.getProperty("ParallelSearchCards", "729"));
+        bitSlicedTestCandidates = Long.parseLong(properties.getProperty("BitSlicedTestCandidates", "4096"));
 
         // gameplay settings
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
@@ -204,6 +261,15 @@ public class Config {
         players = humanPlayers + computerPlayers;
 
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
+        concurrentTable = Boolean.parseBoolean(properties.getProperty("ConcurrentTable", "False"));
+        sharedTableFile = properties.getProperty("SharedTableFile", "").trim();
+        sharedCommandsFile = properties.getProperty("SharedCommandsFile", "").trim();
+        sharedCommandsCapacity = Integer.parseInt(properties.getProperty("SharedCommandsCapacity", "1024"));
+        sharedTablePollMicros = Long.parseLong(properties.getProperty("SharedTablePollMicros", "50"));
+        eventBufferSize = Integer.parseInt(properties.getProperty("EventBufferSize", "256"));
+        guaranteeSetDeals = Boolean.parseBoolean(properties.getProperty("GuaranteeSetDeals", "False"));
+        reshuffleWithoutSet = Boolean.parseBoolean(properties.getProperty("ReshuffleWithoutSet", "False"));
+        claimFairnessWindowMillis = (long) (Double.parseDouble(properties.getProperty("ClaimFairnessWindowSeconds", "0")) * 1000.0);
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
         turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
@@ -0,0 +1,129 @@
+package bguspl.set;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.HeadlessException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * This class shows the countdown of the turn on a user interface from its own thread, so the dealer only publishes the
+ * deadline of the turn (see setDeadline) and never wakes up to update the display.
+ * The countdown is shown in whole seconds, updated when the seconds shown change, and once it is in warning
+ * (config.turnTimeoutWarningMillis) in milliseconds, updated at the frame rate of the display.
+ */
+public class CountdownRenderer implements Runnable {
+
+    /**
+     * The frame rate used if the display's one is unknown (e.g. there is no display).
+     */
+    private static final int DEFAULT_FRAMES_PER_SECOND = 60;
+
+    private static final long SECOND = 1000;
+
+    private final Logger logger;
+    private final Config config;
+    private final UserInterface ui;
+
+    /**
+     * The time between two frames of the display, in nanoseconds.
+     */
+    private final long frameNanos;
+
+    /**
+     * The deadline of the turn, in System.nanoTime() terms (valid iff counting).
+     */
+    private volatile long deadline;
+    private volatile boolean counting;
+
+    private volatile boolean terminate;
+    private volatile Thread renderer;
+
+    public CountdownRenderer(Logger logger, Config config, UserInterface ui) {
+        this.logger = logger;
+        this.config = config;
+        this.ui = ui;
+        this.frameNanos = TimeUnit.SECONDS.toNanos(1) / framesPerSecond();
+    }
+
+    /**
+     * @return - the refresh rate of the default screen (DEFAULT_FRAMES_PER_SECOND if unknown).
+     */
+    private static int framesPerSecond() {
+        try {
+            int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode()
+                    .getRefreshRate();
+            if (rate != DisplayMode.REFRESH_RATE_UNKNOWN && rate > 0) return rate;
+        } catch (HeadlessException ignored) {
+        }
+        return DEFAULT_FRAMES_PER_SECOND;
+    }
+
+    /**
+     * Starts counting down to a new deadline (may be called from any thread).
+     *
+     * @param deadline - the deadline, in System.nanoTime() terms.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+        counting = true;
+        wake();
+    }
+
+    public void terminate() {
+        terminate = true;
+        wake();
+    }
+
+    private void wake() {
+        Thread waiting = renderer;
+        if (waiting != null) LockSupport.unpark(waiting);
+    }
+
+    /**
+     * The main loop of the renderer thread.
+     */
+    @Override
+    public void run() {
+        renderer = Thread.currentThread();
+        ThreadLogger.logStart(logger, renderer.getName());
+        long shown = -1;
+        boolean shownWarn = false;
+        long shownDeadline = 0;
+        while (!terminate) {
+            if (!counting) {
+                LockSupport.park(this);
+                continue;
+            }
+            long deadline = this.deadline;
+            long now = System.nanoTime();
+            long left = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - now));
+            boolean warn = left < config.turnTimeoutWarningMillis;
+            long millies = warn ? left : roundToSecondsIntuitively(left);
+            if (millies != shown || warn != shownWarn || deadline != shownDeadline) {
+                ui.setCountdown(millies, warn);
+                shown = millies;
+                shownWarn = warn;
+                shownDeadline = deadline;
+            }
+
+            if (left == 0) {
+                // until the next deadline
+                if (deadline == this.deadline) LockSupport.park(this);
+            } else if (warn) {
+                LockSupport.parkNanos(this, frameNanos);
+            } else {
+                // until the seconds shown change, or the warning starts
+                long next = Math.max(millies - SECOND / 2, config.turnTimeoutWarningMillis - 1);
+                LockSupport.parkNanos(this, deadline - TimeUnit.MILLISECONDS.toNanos(next) - now);
+            }
+        }
+        ThreadLogger.logStop(logger, renderer.getName());
+    }
+
+    private static long roundToSecondsIntuitively(long millis) {
+        if (millis % SECOND > (SECOND / 2)) return millis + SECOND - (millis % SECOND);
+        return millis - (millis % SECOND);
+    }
+}
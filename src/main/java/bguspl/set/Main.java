@@ -42,7 +42,7 @@ public class Main {
         logger = initLogger();
         ThreadLogger.logStart(logger, Thread.currentThread().getName());
         Config config = new Config(logger, "config.properties");
-        Util util = new UtilImpl(config);
+        Util util = new ParallelUtilImpl(config);
 
         Player[] players = new Player[config.players];
         UserInterface ui = null;
@@ -55,6 +55,10 @@ public class Main {
                 logger.severe("warning: running with human players with no user interface");
         }
         ui = new UserInterfaceDecorator(logger, util, ui);
+        UserInterface animator = new UserInterfaceAnimator(logger, config, ui);
+        TableEventPublisher events = new TableEventPublisher(logger, animator);
+        events.subscribe("ui-events", event -> event.replay(animator));
+        ui = events;
 
         Env env = new Env(logger, config, ui, util);
 
@@ -0,0 +1,114 @@
+package bguspl.set;
+
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An implementation of the Util interface that splits the search for sets over a fork/join pool.
+ * Collections smaller than config.parallelSearchCards are searched on the calling thread.
+ */
+public class ParallelUtilImpl extends UtilImpl {
+
+    /**
+     * The number of tasks per worker thread the search is split into (smaller tasks balance better).
+     */
+    private static final int TASKS_PER_THREAD = 16;
+
+    private final ForkJoinPool pool;
+
+    public ParallelUtilImpl(Config config) {
+        this(config, ForkJoinPool.commonPool());
+    }
+
+    public ParallelUtilImpl(Config config, ForkJoinPool pool) {
+        super(config);
+        this.pool = pool;
+    }
+
+    @Override
+    List<int[]> searchSets(int[] cards, BitSet present, int count) {
+        if (count <= 0 || cards.length < config.parallelSearchCards) return super.searchSets(cards, present, count);
+
+        ConcurrentLinkedQueue<int[]> sets = new ConcurrentLinkedQueue<>();
+        AtomicInteger found = new AtomicInteger();
+        search(cards, present, new SetCollector() {
+            @Override
+            public boolean collect(int[] set) {
+                int index = found.incrementAndGet();
+                if (index <= count) sets.add(set.clone());
+                return index >= count;
+            }
+
+            @Override
+            public boolean isDone() {
+                return found.get() >= count;
+            }
+        });
+        return new LinkedList<>(sets);
+    }
+
+    @Override
+    int countSets(int[] cards, BitSet present, int max) {
+        if (max <= 0 || cards.length < config.parallelSearchCards) return super.countSets(cards, present, max);
+
+        AtomicInteger found = new AtomicInteger();
+        search(cards, present, new SetCollector() {
+            @Override
+            public boolean collect(int[] set) {
+                return found.incrementAndGet() >= max;
+            }
+
+            @Override
+            public boolean isDone() {
+                return found.get() >= max;
+            }
+        });
+        return Math.min(found.get(), max);
+    }
+
+    private void search(int[] cards, BitSet present, SetCollector collector) {
+        int grain = Math.max(1, cards.length / (pool.getParallelism() * TASKS_PER_THREAD));
+        pool.invoke(new SearchTask(cards, present, collector, 0, cards.length, grain));
+    }
+
+    /**
+     * Searches the sets whose smallest card is in a range of the cards, splitting the range in halves.
+     */
+    private class SearchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] cards;
+        private final BitSet present;
+        private final SetCollector collector;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        SearchTask(int[] cards, BitSet present, SetCollector collector, int from, int to, int grain) {
+            this.cards = cards;
+            this.present = present;
+            this.collector = collector;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (collector.isDone()) return;
+            if (to - from <= grain) {
+                new SetSearch(cards, present, collector).run(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SearchTask(cards, present, collector, from, middle, grain),
+                        new SearchTask(cards, present, collector, middle, to, grain));
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package bguspl.set;
+
+import java.util.Arrays;
+
+/**
+ * This class describes a single change of the game shown to the players (see TableEventPublisher).
+ * Events are immutable (the arrays they hold must not be modified).
+ */
+public final class TableEvent {
+
+    public enum Type {
+        CARD_PLACED, CARDS_PLACED, CARD_REMOVED, CARDS_REMOVED,
+        TOKEN_PLACED, TOKEN_REMOVED, TOKENS_REMOVED, ALL_TOKENS_REMOVED,
+        SCORE, FREEZE, WINNERS
+    }
+
+    public final Type type;
+
+    /**
+     * The player and the slot of the change (-1 if not relevant).
+     */
+    public final int player;
+    public final int slot;
+
+    /**
+     * The card placed, the new score or the freeze milliseconds (-1 if not relevant).
+     */
+    public final long value;
+
+    /**
+     * The cards, slots or players of the change (empty if not relevant).
+     */
+    private final int[] cards;
+    private final int[] slots;
+    private final int[] players;
+
+    private static final int[] NONE = new int[0];
+
+    private TableEvent(Type type, int player, int slot, long value, int[] cards, int[] slots, int[] players) {
+        this.type = type;
+        this.player = player;
+        this.slot = slot;
+        this.value = value;
+        this.cards = cards;
+        this.slots = slots;
+        this.players = players;
+    }
+
+    public static TableEvent cardPlaced(int card, int slot) {
+        return new TableEvent(Type.CARD_PLACED, -1, slot, card, NONE, NONE, NONE);
+    }
+
+    public static TableEvent cardsPlaced(int[] cards, int[] slots) {
+        return new TableEvent(Type.CARDS_PLACED, -1, -1, -1, cards.clone(), slots.clone(), NONE);
+    }
+
+    public static TableEvent cardRemoved(int slot) {
+        return new TableEvent(Type.CARD_REMOVED, -1, slot, -1, NONE, NONE, NONE);
+    }
+
+    public static TableEvent cardsRemoved(int[] slots) {
+        return new TableEvent(Type.CARDS_REMOVED, -1, -1, -1, NONE, slots.clone(), NONE);
+    }
+
+    public static TableEvent tokenPlaced(int player, int slot) {
+        return new TableEvent(Type.TOKEN_PLACED, player, slot, -1, NONE, NONE, NONE);
+    }
+
+    public static TableEvent tokenRemoved(int player, int slot) {
+        return new TableEvent(Type.TOKEN_REMOVED, player, slot, -1, NONE, NONE, NONE);
+    }
+
+    public static TableEvent tokensRemoved(int slot) {
+        return new TableEvent(Type.TOKENS_REMOVED, -1, slot, -1, NONE, NONE, NONE);
+    }
+
+    public static TableEvent allTokensRemoved() {
+        return new TableEvent(Type.ALL_TOKENS_REMOVED, -1, -1, -1, NONE, NONE, NONE);
+    }
+
+    public static TableEvent score(int player, int score) {
+        return new TableEvent(Type.SCORE, player, -1, score, NONE, NONE, NONE);
+    }
+
+    public static TableEvent freeze(int player, long millies) {
+        return new TableEvent(Type.FREEZE, player, -1, millies, NONE, NONE, NONE);
+    }
+
+    public static TableEvent winners(int[] players) {
+        return new TableEvent(Type.WINNERS, -1, -1, -1, NONE, NONE, players.clone());
+    }
+
+    /**
+     * @return - the cards placed (CARDS_PLACED only).
+     */
+    public int[] cards() {
+        return cards.clone();
+    }
+
+    /**
+     * @return - the slots of the cards placed or removed (CARDS_PLACED and CARDS_REMOVED only).
+     */
+    public int[] slots() {
+        return slots.clone();
+    }
+
+    /**
+     * @return - the winners (WINNERS only).
+     */
+    public int[] players() {
+        return players.clone();
+    }
+
+    /**
+     * Shows the change on a user interface.
+     */
+    public void replay(UserInterface ui) {
+        switch (type) {
+            case CARD_PLACED:
+                ui.placeCard((int) value, slot);
+                break;
+            case CARDS_PLACED:
+                ui.placeCards(cards, slots);
+                break;
+            case CARD_REMOVED:
+                ui.removeCard(slot);
+                break;
+            case CARDS_REMOVED:
+                ui.removeCards(slots);
+                break;
+            case TOKEN_PLACED:
+                ui.placeToken(player, slot);
+                break;
+            case TOKEN_REMOVED:
+                ui.removeToken(player, slot);
+                break;
+            case TOKENS_REMOVED:
+                ui.removeTokens(slot);
+                break;
+            case ALL_TOKENS_REMOVED:
+                ui.removeTokens();
+                break;
+            case SCORE:
+                ui.setScore(player, (int) value);
+                break;
+            case FREEZE:
+                ui.setFreeze(player, value);
+                break;
+            case WINNERS:
+                ui.announceWinner(players);
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type + "{player=" + player + ", slot=" + slot + ", value=" + value + ", cards=" + Arrays.toString(cards)
+                + ", slots=" + Arrays.toString(slots) + ", players=" + Arrays.toString(players) + "}";
+    }
+}
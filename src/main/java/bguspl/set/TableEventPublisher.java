@@ -0,0 +1,205 @@
+package bguspl.set;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * This class turns the changes the game shows to the players into a stream of events (see TableEvent), delivered to
+ * each subscriber (e.g. the user interface, logging, metrics or recorders) on its own thread through a buffer.
+ * The game threads only publish and never wait for a subscriber: the buffer of the user interface is unbounded, and an
+ * optional subscriber that falls behind (its bounded buffer is full) misses the events published meanwhile.
+ * The timer is not a change of the table, so it is passed on to the user interface right away.
+ */
+public class TableEventPublisher implements UserInterface {
+
+    /**
+     * The number of milliseconds a subscriber waits for an event before checking whether it was closed.
+     */
+    private static final long POLL_MILLIS = 10;
+
+    private final Logger logger;
+
+    /**
+     * The user interface showing the timer, and disposed of last.
+     */
+    private final UserInterface ui;
+
+    private final List<Subscription> subscriptions;
+
+    public TableEventPublisher(Logger logger, UserInterface ui) {
+        this.logger = logger;
+        this.ui = ui;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Delivers all the events published from now on to a subscriber (e.g. the user interface), in order, on a new
+     * thread. The events wait for the subscriber in an unbounded buffer.
+     *
+     * @param name       - the name of the subscriber (and its thread).
+     * @param subscriber - the subscriber.
+     */
+    public void subscribe(String name, Consumer<TableEvent> subscriber) {
+        subscribe(new Subscription(name, new LinkedBlockingQueue<>(), subscriber));
+    }
+
+    /**
+     * Delivers the events published from now on to an optional subscriber (e.g. logging or metrics), in order, on a
+     * new thread. An event published while the buffer of the subscriber is full is dropped (and counted).
+     *
+     * @param name       - the name of the subscriber (and its thread).
+     * @param capacity   - the number of events that may wait for the subscriber.
+     * @param subscriber - the subscriber.
+     */
+    public void subscribe(String name, int capacity, Consumer<TableEvent> subscriber) {
+        subscribe(new Subscription(name, new ArrayBlockingQueue<>(capacity), subscriber));
+    }
+
+    private void subscribe(Subscription subscription) {
+        subscriptions.add(subscription);
+        subscription.thread.start();
+    }
+
+    /**
+     * Delivers an event to all the subscribers, without waiting for any of them.
+     */
+    public void publish(TableEvent event) {
+        for (Subscription subscription : subscriptions)
+            subscription.offer(event);
+    }
+
+    private class Subscription implements Runnable {
+
+        private final BlockingQueue<TableEvent> events;
+        private final Consumer<TableEvent> subscriber;
+        private final Thread thread;
+        private volatile boolean closed;
+
+        /**
+         * The number of events dropped because the buffer was full.
+         */
+        private final AtomicLong dropped;
+
+        private Subscription(String name, BlockingQueue<TableEvent> events, Consumer<TableEvent> subscriber) {
+            this.events = events;
+            this.subscriber = subscriber;
+            this.thread = new Thread(this, name);
+            this.dropped = new AtomicLong();
+            thread.setDaemon(true);
+        }
+
+        private void offer(TableEvent event) {
+            if (!closed && !events.offer(event)) dropped.incrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            ThreadLogger.logStart(logger, thread.getName());
+            try {
+                while (!closed || !events.isEmpty()) {
+                    TableEvent event = events.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (event == null) continue;
+                    try {
+                        subscriber.accept(event);
+                    } catch (RuntimeException e) {
+                        logger.severe("subscriber " + thread.getName() + " failed on " + event + ": " + e);
+                    }
+                }
+            } catch (InterruptedException ignored) {
+            }
+            if (dropped.get() > 0)
+                logger.warning("subscriber " + thread.getName() + " missed " + dropped.get() + " events (buffer full)");
+            ThreadLogger.logStop(logger, thread.getName());
+        }
+
+        /**
+         * Delivers the events already published and stops the subscription.
+         */
+        private void close() {
+            closed = true;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        publish(TableEvent.cardPlaced(card, slot));
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        publish(TableEvent.cardRemoved(slot));
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        publish(TableEvent.cardsPlaced(cards, slots));
+    }
+
+    @Override
+    public void removeCards(int[] slots) {
+        publish(TableEvent.cardsRemoved(slots));
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        publish(TableEvent.tokenPlaced(player, slot));
+    }
+
+    @Override
+    public void removeTokens() {
+        publish(TableEvent.allTokensRemoved());
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        publish(TableEvent.tokensRemoved(slot));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        publish(TableEvent.tokenRemoved(player, slot));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        publish(TableEvent.freeze(player, millies));
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        publish(TableEvent.score(player, score));
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        publish(TableEvent.winners(players));
+    }
+
+    @Override
+    public void dispose() {
+        subscriptions.forEach(Subscription::close);
+        ui.dispose();
+    }
+}
@@ -18,6 +18,19 @@ public interface UserInterface {
      */
     void removeCard(int slot);
 
+    /**
+     * Draw the card images corresponding to the card ids in the specified slots, all at once.
+     * @param cards - the card ids.
+     * @param slots - the slot numbers (slots[i] is the slot of cards[i]).
+     */
+    void placeCards(int[] cards, int[] slots);
+
+    /**
+     * Draw an empty card image in each of the specified slots, all at once.
+     * @param slots - the slot numbers.
+     */
+    void removeCards(int[] slots);
+
     /**
      * Draw a player name text in the specified slot.
      * @param player - the card id.
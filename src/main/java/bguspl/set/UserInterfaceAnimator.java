@@ -0,0 +1,153 @@
+package bguspl.set;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Logger;
+
+/**
+ * This class plays the changes of the cards and tokens on the table to another user interface asynchronously, at the
+ * pace of one card (or one batch of cards) per config.tableDelayMillis, so the table itself can change instantly.
+ * The changes are played in the order they were made (a token is never shown before the card it was placed on); the
+ * timer, scores and freezes are not animated and are passed on right away.
+ * The changes waiting to be played are not bounded, so a thread making a change never waits for the animation.
+ */
+public class UserInterfaceAnimator implements UserInterface {
+
+    private final Logger logger;
+    private final Config config;
+    private final UserInterface ui;
+
+    /**
+     * The changes waiting to be played.
+     */
+    private final BlockingQueue<Runnable> changes;
+
+    private final Thread animator;
+
+    public UserInterfaceAnimator(Logger logger, Config config, UserInterface ui) {
+        this.logger = logger;
+        this.config = config;
+        this.ui = ui;
+        this.changes = new LinkedBlockingQueue<>();
+        this.animator = new Thread(this::animate, "ui-animator");
+        animator.setDaemon(true);
+        animator.start();
+    }
+
+    /**
+     * The main loop of the animator thread.
+     */
+    private void animate() {
+        ThreadLogger.logStart(logger, Thread.currentThread().getName());
+        try {
+            while (true)
+                changes.take().run();
+        } catch (InterruptedException ignored) {
+        }
+        ThreadLogger.logStop(logger, Thread.currentThread().getName());
+    }
+
+    /**
+     * Queues a change to be played.
+     */
+    private void play(Runnable change) {
+        changes.add(change);
+    }
+
+    /**
+     * Waits config.tableDelayMillis before a card is shown or hidden (called from the animator thread).
+     */
+    private void delay() {
+        try {
+            Thread.sleep(config.tableDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        play(() -> {
+            delay();
+            ui.placeCard(card, slot);
+        });
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        play(() -> {
+            delay();
+            ui.removeCard(slot);
+        });
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        play(() -> {
+            delay();
+            ui.placeCards(cards, slots);
+        });
+    }
+
+    @Override
+    public void removeCards(int[] slots) {
+        play(() -> {
+            delay();
+            ui.removeCards(slots);
+        });
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        play(() -> ui.placeToken(player, slot));
+    }
+
+    @Override
+    public void removeTokens() {
+        play(ui::removeTokens);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        play(() -> ui.removeTokens(slot));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        play(() -> ui.removeToken(player, slot));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        // after the last changes of the table were played
+        play(() -> ui.announceWinner(players));
+    }
+
+    @Override
+    public void dispose() {
+        play(() -> {
+            ui.dispose();
+            animator.interrupt();
+        });
+    }
+}
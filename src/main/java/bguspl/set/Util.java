@@ -1,6 +1,8 @@
 package bguspl.set;
 
+import java.util.BitSet;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * An interface for general utilities provided for convenience.
@@ -31,6 +33,25 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Checks many candidate sets at once. The cards are kept in bit planes (a bit per candidate, in a long per feature
+     * value), so 64 candidates are tested by the same few word operations.
+     *
+     * @param cards - the cards of the candidates, one after the other (config.featureSize cards per candidate).
+     * @param legal - bit (i % 64) of legal[i / 64] is set iff candidate i is a legal set (at least ceil(candidates / 64)
+     *              longs).
+     * @return - the number of legal sets among the candidates.
+     */
+    int testSets(int[] cards, long[] legal);
+
+    /**
+     * Computes the only card that completes config.featureSize - 1 distinct cards to a legal set.
+     *
+     * @param cards - an array of config.featureSize - 1 distinct card ids.
+     * @return - the id of the missing card, or -1 if there is none (or if it is not unique, i.e. featureSize < 3).
+     */
+    int completeSet(int[] cards);
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      *
@@ -40,6 +61,50 @@ public interface Util {
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * Finds and returns up to count sets in the given array of cards (see findSets).
+     *
+     * @param cards - an array of distinct card ids (not modified).
+     * @param count - the maximum number of sets to find.
+     * @return - a list of up to count integer arrays, each one contains the card ids of a legal set.
+     */
+    List<int[]> findSets(int[] cards, int count);
+
+    /**
+     * Finds and returns up to count sets in the given set of cards (see findSets).
+     *
+     * @param cards - the card ids, as a set of bits (not modified).
+     * @param count - the maximum number of sets to find.
+     * @return - a list of up to count integer arrays, each one contains the card ids of a legal set.
+     */
+    List<int[]> findSets(BitSet cards, int count);
+
+    /**
+     * Counts up to max sets in the given array of cards, without allocating anything per set found.
+     *
+     * @param cards - an array of distinct card ids (not modified).
+     * @param max   - the maximum number of sets to count (e.g. 1 to check if there is a set at all).
+     * @return - the number of sets found (up to max).
+     */
+    int countSets(int[] cards, int max);
+
+    /**
+     * Counts up to max sets in the given set of cards (see countSets).
+     *
+     * @param cards - the card ids, as a set of bits (not modified).
+     * @param max   - the maximum number of sets to count.
+     * @return - the number of sets found (up to max).
+     */
+    int countSets(BitSet cards, int max);
+
+    /**
+     * Lazily enumerates the sets in the given array of cards. Sets are only searched for as the stream is consumed.
+     *
+     * @param cards - an array of distinct card ids (not modified).
+     * @return - a stream of integer arrays, each one contains the card ids of a legal set (in ascending order).
+     */
+    Stream<int[]> streamSets(int[] cards);
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
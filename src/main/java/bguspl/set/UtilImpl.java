@@ -1,20 +1,63 @@
 package bguspl.set;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Spliterator;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The implementation of the UserInterface interface.
  */
 public class UtilImpl implements Util {
 
-    private final Config config;
+    protected final Config config;
+
+    /**
+     * The features of every card in the deck, computed once (features[card][feature]).
+     */
+    private final int[][] features;
+
+    /**
+     * Packed encoding of every card: each feature takes config.featureSize bits, with exactly one bit set (the bit of
+     * the feature's value). null if the encoding does not fit in a long.
+     */
+    private final long[] packed;
+
+    /**
+     * A mask of a single feature in the packed encoding.
+     */
+    private final long fieldMask;
+
+    /**
+     * The weight of each feature in a card id (i.e. config.featureSize ^ (config.featureCount - 1 - feature)).
+     */
+    private final int[] weights;
 
     public UtilImpl(Config config) {
         this.config = config;
+        features = new int[config.deckSize][config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card)
+            cardToFeatures(card, features[card]);
+        weights = new int[config.featureCount];
+        for (int i = config.featureCount - 1, weight = 1; i >= 0; --i, weight *= config.featureSize)
+            weights[i] = weight;
+
+        if (config.featureSize * config.featureCount <= Long.SIZE) {
+            fieldMask = config.featureSize == Long.SIZE ? -1L : (1L << config.featureSize) - 1;
+            packed = new long[config.deckSize];
+            for (int card = 0; card < config.deckSize; ++card)
+                for (int i = 0; i < config.featureCount; ++i)
+                    packed[card] |= 1L << (i * config.featureSize + features[card][i]);
+        } else {
+            fieldMask = 0;
+            packed = null;
+        }
     }
 
     private void cardToFeatures(int card, int[] features) {
@@ -26,35 +69,34 @@ public class UtilImpl implements Util {
 
     @Override
     public int[] cardToFeatures(int card) {
-        int[] features = new int[config.featureCount];
-        cardToFeatures(card, features);
-        return features;
+        return features[card].clone();
     }
 
     @Override
     public int[][] cardsToFeatures(int[] cards) {
-        int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        int[][] features = new int[cards.length][];
+        IntStream.range(0, cards.length).forEach(i -> features[i] = cardToFeatures(cards[i]));
         return features;
     }
 
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
+        if (packed != null) return testPackedSet(cards);
+
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
 
             // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
+            for (int j = 1; j < cards.length; ++j)
+                if (features[cards[0]][i] != features[cards[j]][i]) {
                     sameSame = false;
                     break;
                 }
 
             // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
+            for (int j = 1; j < cards.length && butDifferent; ++j)
+                for (int k = j; k < cards.length; ++k)
+                    if (features[cards[j - 1]][i] == features[cards[k]][i]) {
                         butDifferent = false;
                         break;
                     }
@@ -64,32 +106,498 @@ public class UtilImpl implements Util {
         return true;
     }
 
+    /**
+     * Checks a set using the packed encoding: OR-ing the cards leaves a single bit in a feature iff the feature is the
+     * same in all cards, and as many bits as cards iff it is different in all of them.
+     */
+    private boolean testPackedSet(int[] cards) {
+        long union = 0;
+        for (int card : cards)
+            union |= packed[card];
+        return isConsistent(union, cards.length);
+    }
+
+    /**
+     * @param union - the OR of the packed encodings of some cards.
+     * @param cards - the number of cards in the union.
+     * @return - true iff every feature is either the same in all cards or different in all of them.
+     */
+    private boolean isConsistent(long union, int cards) {
+        for (int i = 0; i < config.featureCount; ++i) {
+            int values = Long.bitCount((union >>> (i * config.featureSize)) & fieldMask);
+            if (values != 1 && values != cards) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int completeSet(int[] cards) {
+        // with less than 3 cards in a set the missing card is not unique
+        if (config.featureSize < 3) return -1;
+        if (packed != null) {
+            long union = 0;
+            for (int card : cards)
+                union |= packed[card];
+            return completeSet(union);
+        }
+
+        int missing = 0;
+        for (int i = 0; i < config.featureCount; ++i) {
+            // all the same: the missing card has the same value, all different: it has the value none of them has
+            boolean sameSame = true;
+            int sum = 0;
+            for (int card : cards) {
+                sameSame &= features[card][i] == features[cards[0]][i];
+                sum += features[card][i];
+            }
+            int value = sameSame ? features[cards[0]][i] : config.featureSize * (config.featureSize - 1) / 2 - sum;
+            if (!sameSame && !isButDifferent(cards, i, value)) return -1;
+            missing += value * weights[i];
+        }
+        return missing;
+    }
+
+    /**
+     * @return - true iff the given feature is different in all cards, and none of them has the given value.
+     */
+    private boolean isButDifferent(int[] cards, int feature, int value) {
+        if (value < 0 || value >= config.featureSize) return false;
+        for (int j = 0; j < cards.length; ++j) {
+            if (features[cards[j]][feature] == value) return false;
+            for (int k = j + 1; k < cards.length; ++k)
+                if (features[cards[j]][feature] == features[cards[k]][feature]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the only card that completes config.featureSize - 1 distinct cards to a legal set.
+     *
+     * @param union - the OR of the packed encodings of the cards.
+     * @return - the id of the missing card, or -1 if there is none.
+     */
+    private int completeSet(long union) {
+        int card = 0;
+        for (int i = 0; i < config.featureCount; ++i) {
+            long field = (union >>> (i * config.featureSize)) & fieldMask;
+            int values = Long.bitCount(field);
+            if (values == config.featureSize - 1) field ^= fieldMask; // all different: take the value nobody has
+            else if (values != 1) return -1;
+            card += Long.numberOfTrailingZeros(field) * weights[i];
+        }
+        return card;
+    }
+
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        int[] cards = deck.stream().mapToInt(Integer::intValue).sorted().toArray();
+        return searchSets(cards, presence(cards), count);
+    }
+
+    @Override
+    public List<int[]> findSets(int[] cards, int count) {
+        int[] sorted = sorted(cards);
+        return searchSets(sorted, presence(sorted), count);
+    }
+
+    @Override
+    public List<int[]> findSets(BitSet cards, int count) {
+        return searchSets(cards.stream().toArray(), presence(cards), count);
+    }
+
+    @Override
+    public int countSets(int[] cards, int max) {
+        int[] sorted = sorted(cards);
+        return countSets(sorted, presence(sorted), max);
+    }
+
+    @Override
+    public int countSets(BitSet cards, int max) {
+        return countSets(cards.stream().toArray(), presence(cards), max);
+    }
+
+    @Override
+    public Stream<int[]> streamSets(int[] cards) {
+        int[] sorted = sorted(cards);
+        return StreamSupport.stream(new SetSpliterator(new SetSearch(sorted, presence(sorted), null), 0, sorted.length), false);
+    }
+
+    /**
+     * Finds up to count sets in a sorted array of cards.
+     *
+     * @param cards   - the cards, in ascending order.
+     * @param present - the presence of the cards (see presence).
+     * @param count   - the maximum number of sets to find.
+     * @return - a list of up to count sets.
+     */
+    List<int[]> searchSets(int[] cards, BitSet present, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
-        int n = deck.size();
-        int r = config.featureSize;
-        int[] combination = new int[r];
-
-        for (int i = 0; i < r; ++i)
-            combination[i] = i;
-
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
-            if (testSet(cards)) {
-                sets.add(cards);
-                if (sets.size() >= count) return sets;
+        if (count <= 0) return sets;
+        search(cards, present, set -> {
+            sets.add(set.clone());
+            return sets.size() >= count;
+        });
+        return sets;
+    }
+
+    /**
+     * Counts up to max sets in a sorted array of cards, without allocating anything per set found.
+     *
+     * @param cards   - the cards, in ascending order.
+     * @param present - the presence of the cards (see presence).
+     * @param max     - the maximum number of sets to count.
+     * @return - the number of sets found (up to max).
+     */
+    int countSets(int[] cards, BitSet present, int max) {
+        if (max <= 0) return 0;
+        int[] sets = {0};
+        search(cards, present, set -> ++sets[0] >= max);
+        return sets[0];
+    }
+
+    /**
+     * Searches all the sets in a sorted array of cards. When there are enough combinations to test, they are tested
+     * 64 at a time (see searchCombinationsInBatches).
+     */
+    private void search(int[] cards, BitSet present, SetCollector collector) {
+        if (present == null && combinations(cards.length, config.featureSize) >= config.bitSlicedTestCandidates)
+            searchCombinationsInBatches(cards, collector);
+        else
+            new SetSearch(cards, present, collector).run(0, cards.length);
+    }
+
+    /**
+     * @return - n choose r, or Long.MAX_VALUE if it is larger than that.
+     */
+    private static long combinations(int n, int r) {
+        if (r > n) return 0;
+        long combinations = 1;
+        for (int i = 1; i <= Math.min(r, n - r); ++i) {
+            if (combinations > Long.MAX_VALUE / (n - i + 1)) return Long.MAX_VALUE;
+            combinations = combinations * (n - i + 1) / i;
+        }
+        return combinations;
+    }
+
+    /**
+     * Tests every combination of config.featureSize cards, 64 candidates for the last card at a time.
+     * The cards are kept in bit planes once: bit j of planes[block][feature * featureSize + value] is set iff card
+     * (64 * block + j) has this value. The first cards of a combination are kept the same way (as all ones or zeros),
+     * so testing 64 candidates takes a few word operations per feature value.
+     */
+    private void searchCombinationsInBatches(int[] cards, SetCollector collector) {
+        int size = config.featureSize;
+        if (cards.length < size) return;
+        int planes = config.featureCount * size;
+        long[][] blockPlanes = new long[(cards.length + Long.SIZE - 1) / Long.SIZE][planes];
+        for (int i = 0; i < cards.length; ++i)
+            for (int feature = 0; feature < config.featureCount; ++feature)
+                blockPlanes[i / Long.SIZE][feature * size + features[cards[i]][feature]] |= 1L << i;
+
+        // any[depth]/all[depth] are the OR/AND of the planes of the first depth cards of the combination
+        long[][] any = new long[size][planes];
+        long[][] all = new long[size][planes];
+        Arrays.fill(all[0], -1L);
+        searchCombinationsInBatches(cards, blockPlanes, any, all, new int[size], 0, 0, collector);
+    }
+
+    private boolean searchCombinationsInBatches(int[] cards, long[][] blockPlanes, long[][] any, long[][] all,
+                                                int[] set, int depth, int from, SetCollector collector) {
+        int size = config.featureSize;
+        if (depth == size - 1) {
+            for (int block = from / Long.SIZE; block < blockPlanes.length; ++block) {
+                long legal = block == from / Long.SIZE ? -1L << from : -1L;
+                if (block == blockPlanes.length - 1 && cards.length % Long.SIZE != 0)
+                    legal &= (1L << cards.length) - 1;
+                // a feature is legal iff every value appears in some card (all different) or one value in all of them
+                for (int feature = 0; feature < config.featureCount && legal != 0; ++feature) {
+                    long different = -1L, same = 0;
+                    for (int b = feature * size; b < (feature + 1) * size; ++b) {
+                        different &= any[depth][b] | blockPlanes[block][b];
+                        same |= all[depth][b] & blockPlanes[block][b];
+                    }
+                    legal &= different | same;
+                }
+                for (; legal != 0; legal &= legal - 1) {
+                    set[depth] = cards[block * Long.SIZE + Long.numberOfTrailingZeros(legal)];
+                    if (collector.collect(set)) return true;
+                }
             }
+            return false;
+        }
 
-            // generate next combination in lexicographic order
-            int t = r - 1;
-            while (t != 0 && combination[t] == n - r + t) --t;
-            combination[t]++;
-            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        for (int i = from; i <= cards.length - (size - depth); ++i) {
+            if (depth == 0 && collector.isDone()) return true;
+            set[depth] = cards[i];
+            for (int feature = 0; feature < config.featureCount; ++feature) {
+                for (int b = feature * size; b < (feature + 1) * size; ++b) {
+                    boolean value = b == feature * size + features[cards[i]][feature];
+                    any[depth + 1][b] = value ? -1L : any[depth][b];
+                    all[depth + 1][b] = value ? all[depth][b] : 0;
+                }
+            }
+            if (searchCombinationsInBatches(cards, blockPlanes, any, all, set, depth + 1, i + 1, collector)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int testSets(int[] cards, long[] legal) {
+        int size = config.featureSize;
+        int candidates = cards.length / size;
+        int planes = config.featureCount * size;
+        // bit j of plane[feature * size + value] is set iff card p of candidate j has this value (of this feature),
+        // any/all are the OR/AND of the planes of all p
+        long[] plane = new long[planes];
+        long[] any = new long[planes];
+        long[] all = new long[planes];
+        int sets = 0;
+
+        for (int base = 0; base < candidates; base += Long.SIZE) {
+            int batch = Math.min(Long.SIZE, candidates - base);
+            Arrays.fill(any, 0);
+            Arrays.fill(all, -1L);
+            for (int p = 0; p < size; ++p) {
+                Arrays.fill(plane, 0);
+                for (int j = 0; j < batch; ++j) {
+                    int card = cards[(base + j) * size + p];
+                    for (int i = 0; i < config.featureCount; ++i)
+                        plane[i * size + features[card][i]] |= 1L << j;
+                }
+                for (int b = 0; b < planes; ++b) {
+                    any[b] |= plane[b];
+                    all[b] &= plane[b];
+                }
+            }
+
+            // a feature is legal iff every value appears in some card (all different) or one value in all of them
+            long legalSets = batch == Long.SIZE ? -1L : (1L << batch) - 1;
+            for (int i = 0; i < config.featureCount && legalSets != 0; ++i) {
+                long different = -1L, same = 0;
+                for (int value = 0; value < size; ++value) {
+                    different &= any[i * size + value];
+                    same |= all[i * size + value];
+                }
+                legalSets &= different | same;
+            }
+            legal[base / Long.SIZE] = legalSets;
+            sets += Long.bitCount(legalSets);
         }
         return sets;
     }
 
+    private static int[] sorted(int[] cards) {
+        int[] sorted = cards.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * @param cards - an array of cards.
+     * @return - the cards as a set of ids, or null if sets are not searched by completion (see SetSearch).
+     */
+    BitSet presence(int[] cards) {
+        if (!searchByCompletion()) return null;
+        BitSet present = new BitSet(config.deckSize);
+        for (int card : cards)
+            present.set(card);
+        return present;
+    }
+
+    private BitSet presence(BitSet cards) {
+        return searchByCompletion() ? cards : null;
+    }
+
+    private boolean searchByCompletion() {
+        // with less than 3 cards in a set the missing card is not unique, so all combinations must be tried
+        return packed != null && config.featureSize >= 3;
+    }
+
+    /**
+     * Receives the sets found by a SetSearch.
+     */
+    interface SetCollector {
+
+        /**
+         * @param set - the cards of the set, in ascending order (the array is reused by the search, copy to keep it).
+         * @return - true iff the search should stop.
+         */
+        boolean collect(int[] set);
+
+        /**
+         * @return - true iff the search should stop before finding another set (e.g. another search found enough).
+         */
+        default boolean isDone() {
+            return false;
+        }
+    }
+
+    /**
+     * A depth first search for the sets in a sorted array of cards, which can be resumed after every set found.
+     * If the presence of the cards is given, it chooses config.featureSize - 1 cards (in ascending order) and looks up
+     * the card that completes them to a set, so every set is found exactly once - when its completing card is the
+     * largest one. Otherwise, it tests every combination of config.featureSize cards.
+     */
+    class SetSearch {
+
+        private final int[] cards;
+        private final BitSet present;
+        private final SetCollector collector;
+        private final int[] chosen;
+        private final long[] unions;
+
+        /**
+         * The number of cards chosen from the array.
+         */
+        private final int toChoose;
+
+        /**
+         * The index (in cards) of each chosen card, and the depth of the search (the card being chosen now).
+         */
+        private final int[] indexes;
+        private int depth;
+
+        /**
+         * The (exclusive) bound of the index of the smallest card of a set.
+         */
+        private int end;
+
+        /**
+         * @param collector - receives the sets found by run (may be null if only advance is used).
+         */
+        SetSearch(int[] cards, BitSet present, SetCollector collector) {
+            this.cards = cards;
+            this.present = present;
+            this.collector = collector;
+            chosen = new int[config.featureSize];
+            unions = new long[config.featureSize];
+            toChoose = present == null ? config.featureSize : config.featureSize - 1;
+            indexes = new int[toChoose];
+            depth = -1;
+        }
+
+        /**
+         * Searches the sets whose smallest card is one of cards[from..to).
+         *
+         * @return - true iff the search was stopped by the collector.
+         */
+        boolean run(int from, int to) {
+            reset(from, to);
+            while (advance())
+                if (collector.collect(chosen)) return true;
+            return collector.isDone();
+        }
+
+        /**
+         * Restarts the search over the sets whose smallest card is one of cards[from..to).
+         */
+        void reset(int from, int to) {
+            end = Math.min(to, cards.length - (toChoose - 1));
+            indexes[0] = from - 1;
+            depth = 0;
+        }
+
+        /**
+         * Finds the next set.
+         *
+         * @return - true iff a set was found (its cards are in set()), false if the search is over.
+         */
+        boolean advance() {
+            while (depth >= 0) {
+                int i = ++indexes[depth];
+                if (i >= (depth == 0 ? end : cards.length - (toChoose - 1 - depth))) {
+                    --depth;
+                    continue;
+                }
+                if (depth == 0 && collector != null && collector.isDone()) {
+                    depth = -1;
+                    return false;
+                }
+                chosen[depth] = cards[i];
+                if (present != null) {
+                    unions[depth] = (depth == 0 ? 0 : unions[depth - 1]) | packed[cards[i]];
+                    // prune as soon as the chosen cards can no longer be a part of any set
+                    if (depth > 0 && depth < toChoose - 1 && !isConsistent(unions[depth], depth + 1)) continue;
+                }
+                if (depth < toChoose - 1) {
+                    indexes[++depth] = i;
+                    continue;
+                }
+                if (present == null) {
+                    if (testSet(chosen)) return true;
+                } else {
+                    int missing = completeSet(unions[depth]);
+                    if (missing > chosen[depth] && present.get(missing)) {
+                        chosen[toChoose] = missing;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return - the cards of the last set found (the array is reused by the search).
+         */
+        int[] set() {
+            return chosen;
+        }
+
+        /**
+         * Gives away the second half of the smallest cards that were not searched yet.
+         *
+         * @return - the index from which the smallest cards were given away, or -1 if there are too few of them.
+         */
+        int split() {
+            int from = depth < 0 ? end : indexes[0] + 1;
+            if (end - from < 2) return -1;
+            end = (from + end) >>> 1;
+            return end;
+        }
+
+        int end() {
+            return end;
+        }
+    }
+
+    /**
+     * A lazy enumeration of the sets found by a SetSearch, which can be split by the smallest card of the sets.
+     */
+    private class SetSpliterator implements Spliterator<int[]> {
+
+        private final SetSearch search;
+
+        SetSpliterator(SetSearch search, int from, int to) {
+            this.search = search;
+            search.reset(from, to);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action) {
+            if (!search.advance()) return false;
+            action.accept(search.set().clone());
+            return true;
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit() {
+            int to = search.end();
+            int from = search.split();
+            if (from < 0) return null;
+            return new SetSpliterator(new SetSearch(search.cards, search.present, null), from, to);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL;
+        }
+    }
+
     public void spin() {
         if (config.randomSpinMax <= 0) return;
         long cycles = ThreadLocalRandom.current().nextLong(config.randomSpinMin, config.randomSpinMax);
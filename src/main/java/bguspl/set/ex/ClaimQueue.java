@@ -0,0 +1,141 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class queues the claims of the players (calls to the dealer) for a single consumer thread, without locks.
+ * Any number of player threads may offer claims; only the consumer polls them, so it never waits for the players.
+ * Each player has an atomic word holding the generation of its queued claim (0 if none): a claim already queued is not
+ * queued again, and a claim withdrawn (e.g. when one of its cards was taken) is skipped when it is polled, even if the
+ * player claimed again since, since its generation is out of date.
+ * The claims are linked in the order they were offered (a multi-producer single-consumer linked queue: a producer
+ * swaps itself in as the tail, then links the previous tail to itself). Each claim carries the time it was made, which
+ * may be earlier than the time it was offered.
+ */
+public class ClaimQueue {
+
+    private static final class Node {
+        private final int player;
+        private final long stamp;
+        private final long generation;
+        private volatile Node next;
+
+        private Node(int player, long stamp, long generation) {
+            this.player = player;
+            this.stamp = stamp;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * The last claim offered (producers only).
+     */
+    private final AtomicReference<Node> tail;
+
+    /**
+     * The last claim polled, linked to the claims waiting (consumer only).
+     */
+    private Node head;
+
+    /**
+     * The generation of the claim of the player that is queued (and not withdrawn), 0 if none.
+     */
+    private final AtomicLongArray queued;
+
+    /**
+     * The last generation given to a claim of each player (generations are never reused).
+     */
+    private final AtomicLongArray generations;
+
+    /**
+     * The consumer thread, woken when a claim is offered (null if it is never parked, see await).
+     */
+    private volatile Thread consumer;
+
+    /**
+     * @param players - the number of players.
+     */
+    public ClaimQueue(int players) {
+        head = new Node(Table.NONE, 0, 0);
+        tail = new AtomicReference<>(head);
+        queued = new AtomicLongArray(players);
+        generations = new AtomicLongArray(players);
+    }
+
+    /**
+     * Queues a claim of the player made now, unless one is already queued (may be called from any thread).
+     *
+     * @return - true iff the claim was queued.
+     */
+    public boolean offer(int player) {
+        return offer(player, System.nanoTime());
+    }
+
+    /**
+     * Queues a claim of the player, unless one is already queued (may be called from any thread).
+     *
+     * @param stamp - the time the claim was made, in System.nanoTime() terms.
+     * @return - true iff the claim was queued.
+     */
+    public boolean offer(int player, long stamp) {
+        if (queued.get(player) != 0) return false;
+        long generation = generations.incrementAndGet(player);
+        if (!queued.compareAndSet(player, 0, generation)) return false;
+        Node node = new Node(player, stamp, generation);
+        tail.getAndSet(node).next = node;
+        Thread waiting = consumer;
+        if (waiting != null) LockSupport.unpark(waiting);
+        return true;
+    }
+
+    /**
+     * Withdraws the claim of the player, if one is queued (may be called from any thread). The player may claim again
+     * right away.
+     */
+    public void withdraw(int player) {
+        queued.set(player, 0);
+    }
+
+    /**
+     * Takes the first claim that was not withdrawn (consumer thread only).
+     *
+     * @return - the player of the claim (Table.NONE if there is none).
+     */
+    public int poll() {
+        for (Node next = head.next; next != null; next = head.next) {
+            head = next;
+            // cleared before the claim is checked, so a claim made meanwhile is queued again
+            if (queued.compareAndSet(next.player, next.generation, 0)) return next.player;
+        }
+        return Table.NONE;
+    }
+
+    /**
+     * @return - the time the claim polled last was made, in System.nanoTime() terms (consumer thread only).
+     */
+    public long stamp() {
+        return head.stamp;
+    }
+
+    /**
+     * Waits until a claim is queued or the deadline has come, whichever is first (consumer thread only).
+     * May return earlier, e.g. when the consumer is unparked for another reason.
+     *
+     * @param deadline - the deadline, in System.nanoTime() terms.
+     * @return - true iff a claim is queued.
+     */
+    public boolean await(long deadline) {
+        consumer = Thread.currentThread();
+        if (isEmpty()) LockSupport.parkNanos(this, deadline - System.nanoTime());
+        return !isEmpty();
+    }
+
+    /**
+     * @return - true iff no claim is queued (withdrawn claims not polled yet count as queued).
+     */
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+}
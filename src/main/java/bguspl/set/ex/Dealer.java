@@ -1,10 +1,11 @@
 package bguspl.set.ex;
 
+import bguspl.set.CountdownRenderer;
 import bguspl.set.Env;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class manages the dealer's threads and data
@@ -23,9 +24,19 @@ public class Dealer implements Runnable {
     private final Player[] players;
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The card ids that are left in the dealer's deck.
      */
-    private final List<Integer> deck;
+    private final Deck deck;
+
+    /**
+     * Decides whether the cards in play still contain a set.
+     */
+    private final EndGameOracle endGameOracle;
+
+    /**
+     * Chooses the cards dealt so the table has a set (null unless config.guaranteeSetDeals).
+     */
+    private final SetGuarantee setGuarantee;
 
     /**
      * True iff game should be terminated.
@@ -33,27 +44,46 @@ public class Dealer implements Runnable {
     private volatile boolean terminate;
 
     /**
-     * The time when the dealer needs to reshuffle the deck due to turn timeout.
+     * Shows the countdown of the turn from its own thread; the dealer only publishes the deadline of the turn.
+     */
+    private final CountdownRenderer countdown;
+
+    /**
+     * The claims waiting for the dealer thread (see ClaimQueue). The dealer polls them without waiting for the players.
+     */
+    private final ClaimQueue calls;
+
+    /**
+     * Wakes the dealer thread for claims and for the end of the turn.
+     */
+    private final DealerScheduler scheduler;
+
+    /**
+     * The number of claims the dealer thread took, and how many of them went before a claim queued earlier because
+     * they were made earlier (see drainClaims).
+     */
+    private long claimsDrained;
+    private long claimsReordered;
+
+    /**
+     * Lets players in other processes take part in the game (null if not configured).
      */
-    private volatile Queue<Integer> calls;
-    private long starting_time;
-    private long last_updated_time;
-    private volatile DealerFirstFairSemaphore callsLock;
-    private volatile Thread dealerThread;
+    private volatile SharedTableBridge sharedTableBridge;
+
     // declaring consts for not using magic numbers
     private static final int second = 1000;
-    private static final int hundredth = 10;
 
 
     public Dealer(Env env, Table table, Player[] players) {
         this.env = env;
         this.table = table;
         this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        calls = new LinkedList<>();
-        callsLock = new DealerFirstFairSemaphore(env);
-        last_updated_time = 0; // we haven't updated yet, therefore it's 0
-        dealerThread = null;
+        deck = new Deck(env.config.deckSize);
+        endGameOracle = new EndGameOracle(env);
+        setGuarantee = env.config.guaranteeSetDeals ? new SetGuarantee(env, deck) : null;
+        calls = new ClaimQueue(players.length);
+        scheduler = new DealerScheduler(calls);
+        countdown = new CountdownRenderer(env.logger, env.config, env.ui);
     }
 
     /**
@@ -62,9 +92,7 @@ public class Dealer implements Runnable {
     @Override
     public void run() {
         //env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-        deckShuffle();
         placeCardsOnTable();
-        dealerThread = Thread.currentThread();
         synchronized (table) {
             for (int i = 0; i < players.length; i++) {
                 Thread t = new Thread(players[i], "player " + i);
@@ -73,36 +101,43 @@ public class Dealer implements Runnable {
             }
             table.notifyAll();
         }
+        startSharedTableBridge();
+        new Thread(countdown, "countdown").start();
         while (!shouldFinish()) {
             timerLoop();
             removeAllCardsFromTable();
-            deckShuffle();
             placeCardsOnTable();
         }
         env.ui.removeTokens();
         terminate();
         env.logger.info("deck size: " + deck.size());
+        env.logger.info("claims checked by the dealer: " + claimsDrained + ", reordered by the time they were made: "
+                + claimsReordered);
         announceWinners();
         //env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     /**
-     * The inner loop of the dealer thread that runs as long as the countdown did not time out.
+     * The inner loop of the dealer thread that runs as long as the countdown did not time out (and, with
+     * config.reshuffleWithoutSet, as long as the table has a set).
      */
     private void timerLoop() {
-        boolean timeout = false;
         boolean keepPlaying = true;
-        updateTimerDisplay(true); // instead of writing starting time
-        while (!terminate && keepPlaying) {  // !timeout & env.util.findSets(table.getCards(), 1).size() > 0};
-            sleepUntilWokenOrTimeout();
-            updateTimerDisplay(false);
-            removeCardsFromTable();
-            placeCardsOnTable();
-            timeout = System.currentTimeMillis() - starting_time > env.config.turnTimeoutMillis;
-            if (timeout & env.util.findSets(table.getCards(), 1).size() == 0)
-                keepPlaying = false;
-            if (timeout)
-                updateTimerDisplay(true);
+        startTurn();
+        while (!terminate && keepPlaying) {
+            if (env.config.reshuffleWithoutSet && !table.hasSet()) break; // no need to wait for the timeout
+            switch (scheduler.next()) {
+                case CLAIM:
+                    removeCardsFromTable();
+                    placeCardsOnTable();
+                    break;
+                case TIMEOUT:
+                    // the cards are reshuffled only if there is no set on the table, otherwise a new turn starts
+                    if (table.hasSet()) startTurn();
+                    else keepPlaying = false;
+                    break;
+                default: // woken up, e.g. to terminate
+            }
         }
     }
 
@@ -118,6 +153,22 @@ public class Dealer implements Runnable {
     public void terminate() {
         killPlayerThreads();
         terminate = true;
+        scheduler.wake();
+        countdown.terminate();
+        if (sharedTableBridge != null) sharedTableBridge.terminate();
+    }
+
+    /**
+     * Starts mirroring the table to (and reading commands from) the shared files, if any are configured.
+     */
+    private void startSharedTableBridge() {
+        if (env.config.sharedTableFile.isEmpty() && env.config.sharedCommandsFile.isEmpty()) return;
+        try {
+            sharedTableBridge = new SharedTableBridge(env, table, players);
+            new Thread(sharedTableBridge, "shared-table").start();
+        } catch (IOException e) {
+            env.logger.severe("error mapping the shared table files: " + e.getMessage());
+        }
     }
 
     /**
@@ -126,142 +177,235 @@ public class Dealer implements Runnable {
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        List<Integer> unionCards = table.getCards();
-        unionCards.addAll(deck);
-        return terminate || (env.util.findSets(unionCards, 1).size() == 0);
+        if (terminate) return true;
+        // only the dealer thread moves cards, so the snapshot and the deck agree without locking the table
+        TableSnapshot snapshot = table.snapshot();
+        return !endGameOracle.hasSet(snapshot.countCards() + deck.size(), () -> cardsInPlay(snapshot));
     }
 
+    /**
+     * @return - the cards on the table (as of the snapshot) and in the deck.
+     */
+    private BitSet cardsInPlay(TableSnapshot snapshot) {
+        BitSet cards = snapshot.getCardSet();
+        deck.addTo(cards);
+        return cards;
+    }
 
-    public void callDealer(int id) {
-        dealerThread.interrupt();
-        callsLock.acquire(false);
-        if (!calls.contains(id)) {
-            //env.logger.info(Thread.currentThread().getName()+" request call");
-            calls.add(id);
-            //env.logger.info(Thread.currentThread().getName()+" call added");
-        }
-        callsLock.release();
 
+    /**
+     * Queues the claim of a player.
+     *
+     * @param id    - the player id.
+     * @param stamp - the time the claim was made (its last token placed), in System.nanoTime() terms.
+     */
+    public void callDealer(int id, long stamp) {
+        calls.offer(id, stamp);
     }
 
     /**
      * Checks what cards should be removed from the table and removes them.
+     * All the claims waiting are drained and checked at once, in the order they arrived.
      */
     private void removeCardsFromTable() {
-        callsLock.acquire(true);
+        int[] playerIds = drainClaims();
+        //env.logger.info("players "+Arrays.toString(playerIds)+" getting checked");
+        if (playerIds.length == 0) return;
         synchronized (table) {
-            if (calls.isEmpty()) {
-                callsLock.release();
-                return;
-            }
-            int playerId = calls.remove();
-            //env.logger.info("player "+playerId+" getting checked");
-            //was here: callsLock.release();
-            int[] set = table.getSetById(playerId);
-            table.resetTokensById(playerId);
-            players[playerId].tokenCounter.compareAndSet(env.config.featureSize, 0);
-            if (env.util.testSet(set)) {
-                for (int i = 0; i < set.length; i++) {
-                    removeCardAndNotify(table.cardToSlot[set[i]]); // was set[i]
-                }
-                placeCardsOnTable();
-                players[playerId].point();
-                table.hints(); /// to delete
-            } else
-                players[playerId].penalty();
+            checkClaims(playerIds);
         }
-        callsLock.release(); //release only here for removing calls which had tokens that were won before them
+        table.showChanges();
     }
 
     /**
-     * Check if any cards can be removed from the deck and placed on the table.
+     * Takes all the claims waiting, in the order they were made (see Player.keyPressedFromPlayerThread) rather than
+     * the order they were queued in. Claims queued up to config.claimFairnessWindowMillis after the earliest one was
+     * made are waited for, so a claim made earlier but queued later (e.g. its thread was descheduled) still goes first.
+     *
+     * @return - the players claiming, in the order of their claims.
      */
-    private void placeCardsOnTable() {
-        synchronized (table) {
-            for (int i = 0; deck.size() > 0 && i < env.config.tableSize; i++) {
-                if (table.isSlotEmpty(i)) {
-                    table.placeCard(deck.remove(0), i);
+    private int[] drainClaims() {
+        int[] playerIds = new int[players.length];
+        long[] stamps = new long[players.length];
+        int size = 0;
+        long deadline = 0;
+        while (true) {
+            for (int playerId = calls.poll(); playerId != Table.NONE; playerId = calls.poll()) {
+                if (size == playerIds.length) {
+                    playerIds = Arrays.copyOf(playerIds, 2 * size);
+                    stamps = Arrays.copyOf(stamps, 2 * size);
                 }
+                playerIds[size] = playerId;
+                stamps[size++] = calls.stamp();
             }
+            if (size == 0 || env.config.claimFairnessWindowMillis <= 0) break;
+            if (deadline == 0)
+                deadline = Arrays.stream(stamps, 0, size).min().getAsLong()
+                        + TimeUnit.MILLISECONDS.toNanos(env.config.claimFairnessWindowMillis);
+            if (deadline - System.nanoTime() <= 0) break;
+            calls.await(deadline);
         }
+
+        // a stable insertion sort by stamp: there are few claims, mostly in order already
+        int[] arrivals = new int[size];
+        for (int i = 0; i < size; i++) {
+            int j = i;
+            while (j > 0 && stamps[j - 1] > stamps[i]) j--;
+            long stamp = stamps[i];
+            int playerId = playerIds[i];
+            System.arraycopy(stamps, j, stamps, j + 1, i - j);
+            System.arraycopy(playerIds, j, playerIds, j + 1, i - j);
+            System.arraycopy(arrivals, j, arrivals, j + 1, i - j);
+            stamps[j] = stamp;
+            playerIds[j] = playerId;
+            arrivals[j] = i;
+        }
+        // a claim was reordered if it goes before a claim queued earlier
+        int earliestAfter = Integer.MAX_VALUE;
+        for (int i = size - 1; i >= 0; i--) {
+            if (arrivals[i] > earliestAfter) ++claimsReordered;
+            earliestAfter = Math.min(earliestAfter, arrivals[i]);
+        }
+        claimsDrained += size;
+        return Arrays.copyOf(playerIds, size);
     }
 
     /**
-     * assuming you already took calls lock
+     * Checks the claims of players, in order: a claim of a set awards a point and replaces its cards, a claim of cards
+     * that are not a set is penalized, and a claim using a card of an earlier set (or taken before) is cancelled.
+     * The cards of all the sets are removed and replaced together, and the points and penalties are given after that.
+     * Assumes the table is locked.
      *
-     * @param slot
+     * @param playerIds - the players claiming, in the order of their claims.
      */
-    private void removeCardAndNotify(int slot) {
-        //firstly we remove token and then the card making it more clear
-        for (int i = 0; i < players.length; i++) {
-            if (table.isTokenPlaced(i, slot)) {
-                if (calls.contains(i)) calls.remove(i);
-                table.removeToken(i, slot);
-                players[i].oneTokenIsRemoved();
-                // here we need to update the player that if he called the dealer, the call is canceled
+    private void checkClaims(int[] playerIds) {
+        int featureSize = env.config.featureSize;
+        int[] claimants = new int[playerIds.length];
+        int[][] claimedSlots = new int[playerIds.length][];
+        int[] cards = new int[playerIds.length * featureSize];
+        int claims = 0;
+        for (int playerId : playerIds) {
+            int[] slots = table.getSlotsById(playerId);
+            if (slots.length < featureSize) {
+                // cancelled: one of the cards was taken, maybe before the player started waiting for the check
+                players[playerId].claimCancelled();
+                continue;
             }
+            System.arraycopy(table.getSetById(playerId), 0, cards, claims * featureSize, featureSize);
+            claimants[claims] = playerId;
+            claimedSlots[claims++] = slots;
+        }
+        if (claims == 0) return;
+
+        long[] legal = new long[(claims + Long.SIZE - 1) / Long.SIZE];
+        if (claims >= env.config.bitSlicedTestCandidates)
+            env.util.testSets(Arrays.copyOf(cards, claims * featureSize), legal);
+        else {
+            // bit slicing only pays off for many candidates
+            for (int i = 0; i < claims; i++)
+                if (env.util.testSet(Arrays.copyOfRange(cards, i * featureSize, (i + 1) * featureSize)))
+                    legal[i / Long.SIZE] |= 1L << i;
+        }
+
+        BitSet taken = new BitSet(env.config.tableSize);
+        BitSet scored = new BitSet(players.length);
+        BitSet penalized = new BitSet(players.length);
+        for (int i = 0; i < claims; i++) {
+            // a later claim overlapping a set loses its tokens there with the cards, which cancels it
+            if (Arrays.stream(claimedSlots[i]).anyMatch(taken::get)) continue;
+            table.resetTokensById(claimants[i]);
+            players[claimants[i]].tokenCounter.compareAndSet(featureSize, 0);
+            if ((legal[i / Long.SIZE] & (1L << i)) != 0) {
+                for (int slot : claimedSlots[i]) taken.set(slot);
+                scored.set(claimants[i]);
+            } else
+                penalized.set(claimants[i]);
+        }
+
+        if (!taken.isEmpty()) {
+            removeCardsAndNotify(taken.stream().toArray());
+            endGameOracle.cardsLeftPlay();
+            placeCardsOnTable();
         }
-        table.removeCard(slot);
+        for (int i = scored.nextSetBit(0); i >= 0; i = scored.nextSetBit(i + 1))
+            players[i].point();
+        for (int i = penalized.nextSetBit(0); i >= 0; i = penalized.nextSetBit(i + 1))
+            players[i].penalty();
+        if (!scored.isEmpty()) table.hints(); /// to delete
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     * Check if any cards can be removed from the deck and placed on the table.
+     * The cards are drawn at random (see Deck), so the deck needs no shuffling.
      */
-    private void sleepUntilWokenOrTimeout() {
-        callsLock.acquire(true);
-        if (calls.isEmpty()) {
-            callsLock.release();
-            long difference;
-            boolean warn = env.config.turnTimeoutMillis - env.config.turnTimeoutWarningMillis < last_updated_time - starting_time;
-            if (warn) difference = hundredth - 1 - (System.currentTimeMillis() - last_updated_time);
-            else difference = second - 1 - (System.currentTimeMillis() - last_updated_time);
-            env.logger.info("dealer sleeps: " + difference);
-            if (difference < 0) difference = 0;
-            try {
-                Thread.sleep(difference);
-            } catch (InterruptedException ignored) {
+    private void placeCardsOnTable() {
+        synchronized (table) {
+            int[] slots = new int[env.config.tableSize];
+            int size = 0;
+            for (int slot = table.nextEmptySlot(0); size < deck.size() && slot != Table.NONE; slot = table.nextEmptySlot(slot + 1)) {
+                slots[size++] = slot;
             }
-        } else {
-            callsLock.release();
+            if (size == 0) return;
+            table.placeCards(dealCards(size), Arrays.copyOf(slots, size));
         }
+        table.showChanges();
     }
 
     /**
-     * Reset and/or update the countdown and the countdown display.
+     * Draws cards from the deck for empty slots. With config.guaranteeSetDeals, drawn cards may be exchanged so the
+     * table has a set (see SetGuarantee).
+     * Assumes the table is locked.
+     *
+     * @param count - the number of empty slots (at most the size of the deck).
+     * @return - the cards to deal.
+     */
+    private int[] dealCards(int count) {
+        if (setGuarantee == null) return deck.draw(count);
+        return setGuarantee.draw(count, table.getCardSet(), table.hasSet());
+    }
+
+    /**
+     * Removes the cards in the slots and withdraws the claims that had a token on them.
+     *
+     * @param slots
      */
-    private void updateTimerDisplay(boolean reset) {
-        last_updated_time = System.currentTimeMillis();
-        if (reset) {
-            env.ui.setCountdown(env.config.turnTimeoutMillis, false);
-            starting_time = last_updated_time;
-        } else {
-            // changed here the code to be more straight forward and print the maximum time + making it more
-            // appealing to humans
-            long current_time_left = env.config.turnTimeoutMillis - (last_updated_time - starting_time);
-            boolean warn = false;
-            if (current_time_left < env.config.turnTimeoutWarningMillis) warn = true;
-            else current_time_left = roundToSecondsIntuitively(current_time_left);
-            env.ui.setCountdown(current_time_left, warn);
+    private void removeCardsAndNotify(int[] slots) {
+        // the cards are removed together with their tokens, so a token placed concurrently is not missed
+        for (BitSet owners : table.removeCards(slots)) {
+            for (int i = owners.nextSetBit(0); i >= 0; i = owners.nextSetBit(i + 1)) {
+                calls.withdraw(i);
+                players[i].oneTokenIsRemoved();
+                // here we need to update the player that if he called the dealer, the call is canceled
+            }
         }
     }
 
-    private long roundToSecondsIntuitively(long millis) {
-        if (millis % second > (second / 2)) return millis + second - (millis % second);
-        return millis - (millis % second);
+    /**
+     * Starts a new turn: schedules its end and publishes its deadline to the countdown display.
+     */
+    private void startTurn() {
+        long now = System.nanoTime();
+        // with no countdown the table is still checked for a set every second
+        long turn = env.config.turnTimeoutMillis > 0 ? env.config.turnTimeoutMillis : second;
+        scheduler.schedule(DealerScheduler.Event.TIMEOUT, now + TimeUnit.MILLISECONDS.toNanos(turn));
+        if (env.config.turnTimeoutMillis > 0)
+            countdown.setDeadline(now + TimeUnit.MILLISECONDS.toNanos(env.config.turnTimeoutMillis));
     }
 
     /**
      * Returns all the cards from the table to the deck.
      */
     private void removeAllCardsFromTable() {
-        callsLock.acquire(true);
         synchronized (table) {
-            for (int i = 0; i < env.config.tableSize; i++) {
-                removeCardAndNotify(i);
+            deck.addAll(table.getCardSet());
+            int[] removedTokens = table.clear();
+            for (int i = 0; i < players.length; i++) {
+                if (removedTokens[i] > 0) calls.withdraw(i);
+                for (int token = 0; token < removedTokens[i]; token++)
+                    players[i].oneTokenIsRemoved();
             }
         }
-        callsLock.release();
-
+        table.showChanges();
     }
 
     /**
@@ -287,9 +431,4 @@ public class Dealer implements Runnable {
         env.ui.announceWinner(winnersID);
     }
 
-    // shuffles the deck
-    private void deckShuffle() {
-        Collections.shuffle(deck);
-    }
-
 }
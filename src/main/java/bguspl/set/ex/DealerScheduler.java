@@ -0,0 +1,106 @@
+package bguspl.set.ex;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class wakes the dealer thread only when it has something to do: when a claim is waiting, or when the earliest
+ * deadline (e.g. the end of the turn) has come. In between, the dealer
+ * thread is parked, so an idle dealer uses no CPU. No interrupts are involved: a claim unparks the dealer (see
+ * ClaimQueue), and so does wake.
+ * The deadlines are absolute (in System.nanoTime() terms), so late wakeups do not add up.
+ * Used by the dealer thread only, except for wake.
+ */
+class DealerScheduler {
+
+    enum Event {
+        /**
+         * A claim is waiting.
+         */
+        CLAIM,
+        /**
+         * The turn has timed out.
+         */
+        TIMEOUT,
+        /**
+         * The dealer was woken for another reason (see wake) or interrupted.
+         */
+        WAKEUP
+    }
+
+    private static final class Deadline {
+        private final Event event;
+        private final long nanos;
+
+        private Deadline(Event event, long nanos) {
+            this.event = event;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * The claims waiting for the dealer.
+     */
+    private final ClaimQueue claims;
+
+    /**
+     * The deadlines scheduled, the earliest first (at most one per event).
+     */
+    private final PriorityQueue<Deadline> deadlines;
+
+    /**
+     * The dealer thread, once it waited.
+     */
+    private volatile Thread dealer;
+    private volatile boolean woken;
+
+    DealerScheduler(ClaimQueue claims) {
+        this.claims = claims;
+        this.deadlines = new PriorityQueue<>(Comparator.comparingLong((Deadline deadline) -> deadline.nanos));
+    }
+
+    /**
+     * Schedules an event, replacing the deadline of the same event (if any).
+     *
+     * @param nanos - the deadline, in System.nanoTime() terms.
+     */
+    void schedule(Event event, long nanos) {
+        cancel(event);
+        deadlines.add(new Deadline(event, nanos));
+    }
+
+    void cancel(Event event) {
+        deadlines.removeIf(deadline -> deadline.event == event);
+    }
+
+    /**
+     * Waits for the next event: a claim, the earliest deadline (which is removed), or a wakeup.
+     */
+    Event next() {
+        dealer = Thread.currentThread();
+        while (true) {
+            if (woken | Thread.interrupted()) {
+                woken = false;
+                return Event.WAKEUP;
+            }
+            if (!claims.isEmpty()) return Event.CLAIM;
+            Deadline first = deadlines.peek();
+            if (first == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            if (first.nanos - System.nanoTime() <= 0) return deadlines.poll().event;
+            claims.await(first.nanos);
+        }
+    }
+
+    /**
+     * Wakes the dealer thread up (from any thread), e.g. to terminate.
+     */
+    void wake() {
+        woken = true;
+        Thread waiting = dealer;
+        if (waiting != null) LockSupport.unpark(waiting);
+    }
+}
@@ -0,0 +1,123 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class keeps the cards of the dealer's deck in a primitive array, in no particular order.
+ * A card is drawn from a random position and the last card of the deck is moved into its place, so drawing is O(1) and
+ * the deck never has to be shuffled: cards returned to the deck are simply added at its end.
+ * Not thread safe (only the dealer thread uses it).
+ */
+class Deck {
+
+    /**
+     * The cards in the deck are the first size ones.
+     */
+    private final int[] cards;
+    private int size;
+
+    /**
+     * The index of each card in cards (Table.NONE if it is not in the deck).
+     */
+    private final int[] indices;
+
+    /**
+     * Creates a deck of all the cards (0 to deckSize - 1).
+     */
+    Deck(int deckSize) {
+        cards = new int[deckSize];
+        indices = new int[deckSize];
+        for (int card = 0; card < deckSize; card++) {
+            cards[card] = card;
+            indices[card] = card;
+        }
+        size = deckSize;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Draws a random card.
+     *
+     * @return - the card drawn (Table.NONE if the deck is empty).
+     */
+    int draw() {
+        if (size == 0) return Table.NONE;
+        int card = cards[ThreadLocalRandom.current().nextInt(size)];
+        take(card);
+        return card;
+    }
+
+    boolean contains(int card) {
+        return indices[card] != Table.NONE;
+    }
+
+    /**
+     * Takes a given card out of the deck.
+     *
+     * @return - true iff the card was in the deck.
+     */
+    boolean take(int card) {
+        int index = indices[card];
+        if (index == Table.NONE) return false;
+        int last = cards[--size];
+        cards[index] = last;
+        indices[last] = index;
+        indices[card] = Table.NONE;
+        return true;
+    }
+
+    /**
+     * Draws random cards.
+     *
+     * @param count - the number of cards to draw.
+     * @return - the cards drawn (fewer than count if the deck runs out).
+     */
+    int[] draw(int count) {
+        int[] drawn = new int[Math.min(count, size)];
+        for (int i = 0; i < drawn.length; i++)
+            drawn[i] = draw();
+        return drawn;
+    }
+
+    /**
+     * Returns a card to the deck.
+     */
+    void add(int card) {
+        indices[card] = size;
+        cards[size++] = card;
+    }
+
+    /**
+     * Returns cards to the deck.
+     *
+     * @param cards - the cards, as a set of card ids.
+     */
+    void addAll(BitSet cards) {
+        for (int card = cards.nextSetBit(0); card >= 0; card = cards.nextSetBit(card + 1))
+            add(card);
+    }
+
+    /**
+     * Adds the cards in the deck to a set of card ids.
+     */
+    void addTo(BitSet cards) {
+        for (int i = 0; i < size; i++)
+            cards.set(this.cards[i]);
+    }
+
+    /**
+     * @return - the cards in the deck, in no particular order.
+     */
+    int[] toArray() {
+        return Arrays.copyOf(cards, size);
+    }
+}
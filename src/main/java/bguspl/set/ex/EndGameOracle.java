@@ -0,0 +1,67 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.BitSet;
+import java.util.function.Supplier;
+
+/**
+ * This class decides whether the cards still in play (on the table and in the deck) contain a set.
+ * Any collection of cards larger than the largest collection without a set (a cap set) must contain a set, so no
+ * search is done until only a few cards are left in play. The answer only changes when cards leave play, therefore
+ * it is cached until then.
+ */
+class EndGameOracle {
+
+    /**
+     * The sizes of the largest collections of cards without a set, with 3 values per feature, by the number of
+     * features (0 to 6). Sizes for more features are not known.
+     */
+    private static final int[] CAP_SET_SIZES = {1, 2, 4, 9, 20, 45, 112};
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Any collection of more cards than this contains a set (Integer.MAX_VALUE if unknown).
+     */
+    private final int capSetSize;
+
+    /**
+     * The cached answer (null if it should be computed again).
+     */
+    private Boolean hasSet;
+
+    EndGameOracle(Env env) {
+        this.env = env;
+        this.capSetSize = capSetSize(env.config.featureCount, env.config.featureSize);
+    }
+
+    private static int capSetSize(int featureCount, int featureSize) {
+        if (featureSize == 1) return 0; // every card is a set by itself
+        if (featureSize == 2) return 1; // every two cards are a set
+        if (featureSize == 3 && featureCount < CAP_SET_SIZES.length) return CAP_SET_SIZES[featureCount];
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param cardsInPlay - the number of cards on the table and in the deck.
+     * @param cards       - the cards on the table and in the deck (only called if a search is needed).
+     * @return - true iff there is a set in the cards still in play.
+     */
+    boolean hasSet(int cardsInPlay, Supplier<BitSet> cards) {
+        if (hasSet == null) {
+            hasSet = cardsInPlay > capSetSize || env.util.countSets(cards.get(), 1) > 0;
+        }
+        return hasSet;
+    }
+
+    /**
+     * Called when cards leave play (e.g. a set was collected), so the answer must be computed again.
+     */
+    void cardsLeftPlay() {
+        hasSet = null;
+    }
+}
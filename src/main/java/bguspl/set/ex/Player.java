@@ -190,20 +190,14 @@ public class Player implements Runnable {
         if (tokenCounter.get() == env.config.featureSize | dealerChecks.get()) //just for ourselves
             throw new RuntimeException("It's a bug - too many tokens has been placed! or the dealer checks");
 
-        synchronized (table) {
-            if (table.isSlotEmpty(slot)) return;
-            if (!table.isTokenPlaced(id, slot)) {
-                table.placeToken(id, slot);
-                tokenCounter.incrementAndGet();
-            } else {
-                table.removeToken(id, slot);
-                tokenCounter.decrementAndGet();
-            }
-        }
+        int placed = table.toggleToken(id, slot);
+        long placedAt = System.nanoTime(); // the time of the claim, if this token completes one
+        if (placed == 0) return;
+        tokenCounter.addAndGet(placed);
         //calls dealer for set check
         if (tokenCounter.get() == env.config.featureSize) {
             dealerChecks.compareAndSet(false, true);
-            dealer.callDealer(id);
+            dealer.callDealer(id, placedAt);
             keysPressed.clear();
             // was: tokenCounter.compareAndSet(3, 0);
             // deleted caused we need the count if one is taken down
@@ -234,11 +228,29 @@ public class Player implements Runnable {
     }
 
 
+    /**
+     * This method is called when a key is pressed by a player that must not be blocked (e.g. a bot in another
+     * process, see SharedTableBridge).
+     *
+     * @param slot - the slot corresponding to the key pressed.
+     * @return - true iff the key press was accepted (false if the dealer checks the player or too many keys wait).
+     */
+    public boolean tryKeyPressed(int slot) {
+        return !dealerChecks.get() && keysPressed.offer(slot);
+    }
+
     public void oneTokenIsRemoved() {
         tokenCounter.decrementAndGet();
-        if (dealerChecks.get()) { // ofir - make the player know his call was canceled
-            dealerChecks.compareAndSet(true, false);
-            playerThread.interrupt();
+        claimCancelled(); // ofir - make the player know his call was canceled
+    }
+
+    /**
+     * Lets a player waiting for the dealer know its claim was cancelled (e.g. one of its cards was taken), so it goes
+     * on playing. Does nothing if the player is not waiting for the dealer.
+     */
+    public void claimCancelled() {
+        if (dealerChecks.compareAndSet(true, false)) {
+            if (playerThread != null) playerThread.interrupt();
             if (aiThread != null) aiThread.interrupt();
             synchronized (this) {
                 this.notifyAll();
@@ -258,7 +270,7 @@ public class Player implements Runnable {
         playerToSleep = env.config.pointFreezeMillis;
         aiToSleep = env.config.pointFreezeMillis;
         dealerChecks.compareAndSet(true, false);
-        playerThread.interrupt();
+        if (playerThread != null) playerThread.interrupt();
         if (aiThread != null) aiThread.interrupt();
         synchronized (this) {
             this.notifyAll();
@@ -273,7 +285,7 @@ public class Player implements Runnable {
         aiToSleep = env.config.penaltyFreezeMillis;
         //env.logger.info("player " + id + " got penalty");
         dealerChecks.compareAndSet(true, false);
-        playerThread.interrupt();
+        if (playerThread != null) playerThread.interrupt();
         if (aiThread != null) aiThread.interrupt();
         synchronized (this) {
             this.notifyAll();
@@ -0,0 +1,168 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * This class draws the cards the dealer deals so the table has a set whenever the deck can complete one
+ * (config.guaranteeSetDeals). If the cards left on the table have a set (see SetIndex), the cards are drawn at random.
+ * Otherwise a set must include a drawn card, so only the sets of the drawn cards are looked for, and if there is none,
+ * drawn cards are exchanged for cards of the deck that complete one.
+ * Not thread safe (only the dealer thread uses it, with the table locked).
+ */
+class SetGuarantee {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The dealer's deck.
+     */
+    private final Deck deck;
+
+    SetGuarantee(Env env, Deck deck) {
+        this.env = env;
+        this.deck = deck;
+    }
+
+    /**
+     * Draws cards from the deck for empty slots.
+     *
+     * @param count       - the number of empty slots (at most the size of the deck).
+     * @param tableCards  - the cards on the table.
+     * @param tableHasSet - true iff there is a set among the cards on the table.
+     * @return - the cards to deal.
+     */
+    int[] draw(int count, BitSet tableCards, boolean tableHasSet) {
+        int[] drawn = deck.draw(count);
+        if (tableHasSet || env.config.featureSize < 3) return drawn;
+        BitSet cards = (BitSet) tableCards.clone();
+        for (int card : drawn)
+            cards.set(card);
+        int[] candidates = cards.stream().toArray();
+        if (!completesSet(candidates, cards, drawn))
+            completeSetFromDeck(candidates, drawn);
+        return drawn;
+    }
+
+    /**
+     * @param candidates - the cards on the table and the cards drawn.
+     * @param cards      - the same cards, as a set of card ids.
+     * @param drawn      - the cards drawn.
+     * @return - true iff a drawn card is a part of a set among the cards.
+     */
+    private boolean completesSet(int[] candidates, BitSet cards, int[] drawn) {
+        int featureSize = env.config.featureSize;
+        int[] partial = new int[featureSize - 1];
+        for (int card : drawn) {
+            partial[0] = card;
+            int[] chosen = firstCombination(featureSize - 2, candidates.length);
+            for (boolean more = chosen != null; more; more = nextCombination(chosen, candidates.length)) {
+                boolean distinct = true;
+                for (int i = 0; i < chosen.length; i++) {
+                    partial[i + 1] = candidates[chosen[i]];
+                    distinct &= partial[i + 1] != card;
+                }
+                if (!distinct) continue;
+                int missing = env.util.completeSet(partial);
+                if (missing != Table.NONE && cards.get(missing)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exchanges drawn cards for cards of the deck that complete a set with the other cards, if there are any: first
+     * featureSize - 1 cards with a card of the deck, otherwise featureSize - 2 cards with two cards of the deck.
+     *
+     * @param candidates - the cards on the table and the cards drawn.
+     * @param drawn      - the cards drawn (exchanged in place).
+     */
+    private void completeSetFromDeck(int[] candidates, int[] drawn) {
+        int featureSize = env.config.featureSize;
+        int[] partial = new int[featureSize - 1];
+
+        int[] chosen = firstCombination(featureSize - 1, candidates.length);
+        for (boolean more = chosen != null; more; more = nextCombination(chosen, candidates.length)) {
+            for (int i = 0; i < chosen.length; i++)
+                partial[i] = candidates[chosen[i]];
+            int missing = env.util.completeSet(partial);
+            int exchanged = exchangeable(drawn, partial, 0);
+            if (missing != Table.NONE && deck.contains(missing) && exchanged != Table.NONE) {
+                exchange(drawn, exchanged, missing);
+                return;
+            }
+        }
+
+        if (drawn.length < 2) return;
+        int[] deckCards = deck.toArray();
+        chosen = firstCombination(featureSize - 2, candidates.length);
+        for (boolean more = chosen != null; more; more = nextCombination(chosen, candidates.length)) {
+            for (int i = 0; i < chosen.length; i++)
+                partial[i] = candidates[chosen[i]];
+            partial[featureSize - 2] = Table.NONE;
+            int first = exchangeable(drawn, partial, 0);
+            int second = first == Table.NONE ? Table.NONE : exchangeable(drawn, partial, first + 1);
+            if (second == Table.NONE) continue;
+            for (int card : deckCards) {
+                partial[featureSize - 2] = card;
+                int missing = env.util.completeSet(partial);
+                if (missing != Table.NONE && deck.contains(missing)) {
+                    exchange(drawn, first, card);
+                    exchange(drawn, second, missing);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return - the index of the first drawn card from the given index on that is not one of the cards (NONE if none).
+     */
+    private static int exchangeable(int[] drawn, int[] cards, int from) {
+        for (int i = from; i < drawn.length; i++) {
+            int card = drawn[i];
+            if (Arrays.stream(cards).noneMatch(other -> other == card)) return i;
+        }
+        return Table.NONE;
+    }
+
+    /**
+     * Returns a drawn card to the deck and takes the given card out of it instead.
+     */
+    private void exchange(int[] drawn, int index, int card) {
+        deck.add(drawn[index]);
+        deck.take(card);
+        drawn[index] = card;
+    }
+
+    /**
+     * @return - the first combination of size indices out of n (null if there is none).
+     */
+    private static int[] firstCombination(int size, int n) {
+        if (size > n) return null;
+        int[] combination = new int[size];
+        for (int i = 0; i < size; i++)
+            combination[i] = i;
+        return combination;
+    }
+
+    /**
+     * Advances to the next combination of indices out of n, in lexicographic order.
+     *
+     * @return - false iff there is none.
+     */
+    private static boolean nextCombination(int[] combination, int n) {
+        int i = combination.length - 1;
+        while (i >= 0 && combination[i] == n - combination.length + i) i--;
+        if (i < 0) return false;
+        combination[i]++;
+        for (int j = i + 1; j < combination.length; j++)
+            combination[j] = combination[j - 1] + 1;
+        return true;
+    }
+}
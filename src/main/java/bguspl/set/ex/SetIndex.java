@@ -0,0 +1,128 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * This class keeps the sets among the cards on the table up to date as cards are placed and removed, so checking for a
+ * set does not need to search the whole table again.
+ * Placing a card only looks for the sets it completes: for every config.featureSize - 2 other cards, the card that
+ * completes them and the new card to a set is computed and looked up on the table.
+ * Not thread safe (the table synchronizes it).
+ */
+class SetIndex {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The cards on the table.
+     */
+    private final BitSet cards;
+
+    /**
+     * The sets among the cards on the table (the cards of each set are in ascending order).
+     */
+    private final List<int[]> sets;
+
+    /**
+     * True iff the card completing a set is unique (see Util.completeSet), otherwise the sets are searched again.
+     */
+    private final boolean incremental;
+
+    /**
+     * A buffer of config.featureSize - 1 cards to complete.
+     */
+    private final int[] partial;
+
+    SetIndex(Env env) {
+        this.env = env;
+        cards = new BitSet(env.config.deckSize);
+        sets = new ArrayList<>();
+        incremental = env.config.featureSize >= 3;
+        partial = new int[Math.max(0, env.config.featureSize - 1)];
+    }
+
+    /**
+     * Adds a card that was placed on the table.
+     */
+    void add(int card) {
+        if (cards.get(card)) return;
+        cards.set(card);
+        if (!incremental) {
+            sets.clear();
+            sets.addAll(env.util.findSets(cards, Integer.MAX_VALUE));
+            return;
+        }
+        partial[0] = card;
+        addSetsOf(1, 0);
+    }
+
+    /**
+     * Chooses the other cards of the partial set in ascending order, and completes it.
+     */
+    private void addSetsOf(int chosen, int from) {
+        if (chosen == partial.length) {
+            int missing = env.util.completeSet(partial);
+            // every set is added once - when the missing card is the largest of the cards other than the new one
+            if (missing >= 0 && cards.get(missing) && missing > partial[chosen - 1]) {
+                int[] set = new int[partial.length + 1];
+                System.arraycopy(partial, 0, set, 0, partial.length);
+                set[partial.length] = missing;
+                Arrays.sort(set);
+                sets.add(set);
+            }
+            return;
+        }
+        for (int other = cards.nextSetBit(from); other >= 0; other = cards.nextSetBit(other + 1)) {
+            if (other == partial[0]) continue;
+            partial[chosen] = other;
+            addSetsOf(chosen + 1, other + 1);
+        }
+    }
+
+    /**
+     * Removes a card that was removed from the table, with all the sets it was a part of.
+     */
+    void remove(int card) {
+        if (!cards.get(card)) return;
+        cards.clear(card);
+        sets.removeIf(set -> contains(set, card));
+    }
+
+    /**
+     * Removes all the cards (the table was cleared).
+     */
+    void clear() {
+        cards.clear();
+        sets.clear();
+    }
+
+    private static boolean contains(int[] set, int card) {
+        for (int c : set)
+            if (c == card) return true;
+        return false;
+    }
+
+    /**
+     * @return - the number of sets on the table.
+     */
+    int count() {
+        return sets.size();
+    }
+
+    /**
+     * @return - a copy of the sets on the table.
+     */
+    List<int[]> sets() {
+        List<int[]> copy = new ArrayList<>(sets.size());
+        sets.forEach(set -> copy.add(set.clone()));
+        return copy;
+    }
+}
@@ -0,0 +1,213 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class lets players in other processes on the same machine (bots) take part in the game through two memory
+ * mapped files, with no sockets involved. All the values are in the native byte order.
+ * <p>
+ * The table file (config.sharedTableFile) mirrors the cards and tokens on the table:
+ * <pre>
+ *   0: long  sequence       - odd while the table is being written, even otherwise (a seqlock)
+ *   8: long  version        - the version of the table snapshot mirrored (see TableSnapshot)
+ *  16: int   table size, int players, int feature size, int feature count
+ *  32: table size slots of { int card (-1 if none), int unused, long[tokenWords] token bits (bit p of player p) }
+ * </pre>
+ * A reader copies what it needs, and uses the copy only if the sequence was the same even number before and after.
+ * The game writes the odd sequence, then the table, then the even sequence, with a store fence between each two.
+ * <p>
+ * The commands file (config.sharedCommandsFile) is a ring of token commands (key presses) from the bots:
+ * <pre>
+ *   0: long  tail           - the next command index to write, claimed by the bots with an atomic increment
+ *   8: long  head           - the next command index to read, advanced by the game
+ *  16: int   capacity
+ *  64: capacity entries of { long sequence (index + 1 once the command is written), int player, int slot }
+ * </pre>
+ * A bot may write command index i only if i - head < capacity, to entry i % capacity, writing the sequence last.
+ * The game reads the sequence, then the command, then writes the head, with a load fence between each two.
+ * A command is handled like a key press of the player, and is dropped if the player cannot take it right away.
+ */
+public class SharedTableBridge implements Runnable {
+
+    private static final int TABLE_HEADER_SIZE = 32;
+    private static final int COMMANDS_HEADER_SIZE = 64;
+    private static final int COMMAND_SIZE = 16;
+
+    /**
+     * Unsafe.storeFence and Unsafe.loadFence, which keep the plain accesses to the mapped files in order. A volatile
+     * write only keeps the accesses before it from moving after it, and a volatile read only those after it from
+     * moving before it, so neither is enough on processors that reorder stores (e.g. ARM). Unsafe is looked up at run
+     * time, since sun.misc is not part of the Java 8 API.
+     */
+    private static final MethodHandle STORE_FENCE;
+    private static final MethodHandle LOAD_FENCE;
+
+    static {
+        try {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType fence = MethodType.methodType(void.class);
+            STORE_FENCE = lookup.findVirtual(unsafe.getClass(), "storeFence", fence).bindTo(unsafe);
+            LOAD_FENCE = lookup.findVirtual(unsafe.getClass(), "loadFence", fence).bindTo(unsafe);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+    private final Player[] players;
+
+    /**
+     * The mapped files (null if not used).
+     */
+    private final MappedByteBuffer tableFile;
+    private final MappedByteBuffer commandsFile;
+
+    /**
+     * The number of longs holding the token bits of a slot, and the size of a slot in the table file.
+     */
+    private final int tokenWords;
+    private final int slotSize;
+
+    private final int capacity;
+
+    /**
+     * The version of the table mirrored last, and the sequence of the table file.
+     */
+    private long mirrored;
+    private long sequence;
+
+    private volatile boolean terminate;
+
+    public SharedTableBridge(Env env, Table table, Player[] players) throws IOException {
+        this.env = env;
+        this.table = table;
+        this.players = players;
+        this.tokenWords = (env.config.players + Long.SIZE - 1) / Long.SIZE;
+        this.slotSize = Long.BYTES * (1 + tokenWords);
+        this.capacity = env.config.sharedCommandsCapacity;
+        this.mirrored = -1;
+
+        if (env.config.sharedTableFile.isEmpty()) tableFile = null;
+        else {
+            tableFile = map(env.config.sharedTableFile, TABLE_HEADER_SIZE + (long) env.config.tableSize * slotSize);
+            tableFile.putInt(16, env.config.tableSize);
+            tableFile.putInt(20, env.config.players);
+            tableFile.putInt(24, env.config.featureSize);
+            tableFile.putInt(28, env.config.featureCount);
+        }
+        if (env.config.sharedCommandsFile.isEmpty()) commandsFile = null;
+        else {
+            commandsFile = map(env.config.sharedCommandsFile, COMMANDS_HEADER_SIZE + (long) capacity * COMMAND_SIZE);
+            commandsFile.putInt(16, capacity);
+        }
+    }
+
+    private static void storeFence() {
+        try {
+            STORE_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void loadFence() {
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Maps a file (from its beginning, after erasing it) to memory.
+     */
+    private static MappedByteBuffer map(String path, long size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+            file.setLength(0);
+            file.setLength(size);
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.nativeOrder());
+            return buffer;
+        }
+    }
+
+    /**
+     * The main loop of the bridge thread.
+     */
+    @Override
+    public void run() {
+        env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+        while (!terminate) {
+            if (tableFile != null) mirror(table.snapshot());
+            if (commandsFile != null) handleCommands();
+            LockSupport.parkNanos(env.config.sharedTablePollMicros * 1000);
+        }
+        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    public void terminate() {
+        terminate = true;
+    }
+
+    /**
+     * Writes a snapshot of the table to the table file, unless it is already there.
+     */
+    void mirror(TableSnapshot snapshot) {
+        if (snapshot.version() == mirrored) return;
+        tableFile.putLong(0, ++sequence);
+        storeFence();
+        tableFile.putLong(8, snapshot.version());
+        for (int slot = 0; slot < env.config.tableSize; slot++) {
+            int offset = TABLE_HEADER_SIZE + slot * slotSize;
+            tableFile.putInt(offset, snapshot.card(slot));
+            long[] tokens = snapshot.getTokenOwners(slot).toLongArray();
+            for (int word = 0; word < tokenWords; word++)
+                tableFile.putLong(offset + Long.BYTES * (1 + word), word < tokens.length ? tokens[word] : 0);
+        }
+        storeFence();
+        tableFile.putLong(0, ++sequence);
+        mirrored = snapshot.version();
+    }
+
+    /**
+     * Handles the commands written to the commands file since it was last read.
+     */
+    void handleCommands() {
+        long head = commandsFile.getLong(8);
+        while (true) {
+            int offset = COMMANDS_HEADER_SIZE + (int) (head % capacity) * COMMAND_SIZE;
+            if (commandsFile.getLong(offset) != head + 1) break;
+            loadFence();
+            int player = commandsFile.getInt(offset + Long.BYTES);
+            int slot = commandsFile.getInt(offset + Long.BYTES + Integer.BYTES);
+            loadFence(); // the command is read before its entry is given back to the bots
+            if (player >= 0 && player < players.length && slot >= 0 && slot < env.config.tableSize)
+                players[player].tryKeyPressed(slot);
+            else
+                env.logger.warning("invalid shared command: player " + player + " slot " + slot);
+            commandsFile.putLong(8, ++head);
+        }
+    }
+}
@@ -3,19 +3,30 @@ package bguspl.set.ex;
 import bguspl.set.Env;
 
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.Collectors;
 
 /**
  * This class contains the data that is visible to the player.
- * all functions in class are synchronized
+ * all functions in class are synchronized, except for the token functions in the concurrent mode (see slotWords) and
+ * the functions that only read the table, which read the latest snapshot instead (see snapshot).
+ * The changes are shown on the user interface after the table lock is released (see showChanges)
  *
  * @inv slotToCard[x] == y iff cardToSlot[y] == x
  */
 public class Table {
 
+    /**
+     * The value of slotToCard/cardToSlot for an empty slot/a card which is not on the table.
+     */
+    public static final int NONE = -1;
 
     /**
      * The game environment object.
@@ -23,30 +34,124 @@ public class Table {
     private final Env env;
 
     /**
-     * Mapping between a slot and the card placed in it (null if none).
+     * Mapping between a slot and the card placed in it (NONE if none).
+     */
+    protected final int[] slotToCard; // card per slot (if any)
+
+    /**
+     * Mapping between a card and the slot it is in (NONE if none).
      */
-    protected volatile Integer[] slotToCard; // card per slot (if any)
+    protected final int[] cardToSlot; // slot per card (if any)
 
     /**
-     * Mapping between a card and the slot it is in (null if none).
+     * The slots with no card in them.
      */
-    protected volatile Integer[] cardToSlot; // slot per card (if any)
+    private final BitSet emptySlots;
 
-    private volatile boolean[][] tokens;
+    /**
+     * The slots each player placed a token on (tokensOfPlayer[player]), and the players that placed a token on each
+     * slot (tokensOnSlot[slot]).
+     */
+    private final BitSet[] tokensOfPlayer;
+    private final BitSet[] tokensOnSlot;
+
+    /**
+     * The slots each player placed a token on, in the order they were placed (the first selectedCount[player] slots).
+     */
+    private final int[][] selectedSlots;
+    private final int[] selectedCount;
+
+    /**
+     * In the concurrent mode, the card in each slot (plus one, 0 if none) in the low cardMask bits of the slot's word,
+     * and a token bit per player above them (null otherwise). Tokens are placed and removed by CAS on the word without
+     * taking the table lock, so only placing and removing cards is synchronized with the dealer.
+     */
+    private final AtomicLongArray slotWords;
+    private final long cardMask;
+    private final int tokenShift;
+
+    /**
+     * In the concurrent mode, the slots each player may have a token on (featureSize entries from
+     * player * featureSize, NONE if unused), so the tokens of a player are found without scanning every slot (null
+     * otherwise). An entry is reserved before the token bit is set, by the thread placing the player's tokens only,
+     * and is not cleared when the token is removed: it only counts while the slot's word has the player's token bit,
+     * and is reused otherwise.
+     */
+    private final AtomicIntegerArray tokenSlots;
+
+    /**
+     * The number of changes made to the table so far (cards or tokens), the version of a snapshot taken now.
+     */
+    private final AtomicLong version;
+
+    /**
+     * The legal sets among the cards on the table, replaced whenever a card is placed or removed (guarded by the table
+     * lock, the lists are never modified).
+     */
+    private List<int[]> sets;
+
+    /**
+     * The snapshot taken last, replaced when a snapshot is asked for after a change (see snapshot).
+     */
+    private volatile TableSnapshot snapshot;
+
+    /**
+     * The sets among the cards on the table, updated whenever a card is placed or removed.
+     */
+    private final SetIndex setIndex;
+
+    /**
+     * The changes waiting to be shown on the user interface, in the order they were made (see showChanges), and the
+     * number of calls to showChanges not handled yet (a thread showing the changes handles the calls made meanwhile).
+     */
+    private final Queue<Runnable> uiChanges;
+    private final AtomicInteger uiChangesRequested;
 
     /**
      * Constructor for testing.
      *
      * @param env        - the game environment objects.
-     * @param slotToCard - mapping between a slot and the card placed in it (null if none).
-     * @param cardToSlot - mapping between a card and the slot it is in (null if none).
+     * @param slotToCard - mapping between a slot and the card placed in it (NONE if none).
+     * @param cardToSlot - mapping between a card and the slot it is in (NONE if none).
      */
-    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
+    public Table(Env env, int[] slotToCard, int[] cardToSlot) {
 
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
-        this.tokens = new boolean[slotToCard.length][env.config.players];
+        this.emptySlots = new BitSet(slotToCard.length);
+        this.tokensOfPlayer = new BitSet[env.config.players];
+        this.tokensOnSlot = new BitSet[slotToCard.length];
+        this.selectedSlots = new int[env.config.players][env.config.featureSize];
+        this.selectedCount = new int[env.config.players];
+        Arrays.setAll(tokensOfPlayer, player -> new BitSet(slotToCard.length));
+        Arrays.setAll(tokensOnSlot, slot -> new BitSet(env.config.players));
+        this.setIndex = new SetIndex(env);
+        this.uiChanges = new ConcurrentLinkedQueue<>();
+        this.uiChangesRequested = new AtomicInteger();
+        this.tokenShift = Integer.SIZE - Integer.numberOfLeadingZeros(cardToSlot.length);
+        this.cardMask = (1L << tokenShift) - 1;
+        boolean concurrent = env.config.concurrentTable;
+        if (concurrent && tokenShift + env.config.players > Long.SIZE) {
+            env.logger.warning("too many players for a concurrent table: " + env.config.players);
+            concurrent = false;
+        }
+        this.slotWords = concurrent ? new AtomicLongArray(slotToCard.length) : null;
+        this.tokenSlots = concurrent ? new AtomicIntegerArray(env.config.players * env.config.featureSize) : null;
+        if (tokenSlots != null)
+            for (int i = 0; i < tokenSlots.length(); i++) tokenSlots.set(i, NONE);
+        for (int slot = 0; slot < slotToCard.length; ++slot) {
+            if (slotToCard[slot] == NONE) emptySlots.set(slot);
+            else {
+                setIndex.add(slotToCard[slot]);
+                if (slotWords != null) slotWords.set(slot, slotToCard[slot] + 1L);
+            }
+        }
+        BitSet[] tokens = new BitSet[slotToCard.length];
+        Arrays.setAll(tokens, slot -> new BitSet());
+        this.sets = setIndex.sets();
+        this.version = new AtomicLong(0);
+        this.snapshot = new TableSnapshot(0, slotToCard.clone(), tokens, sets);
     }
 
     /**
@@ -55,34 +160,110 @@ public class Table {
      * @param env - the game environment objects.
      */
     public Table(Env env) {
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        this(env, emptyMapping(env.config.tableSize), emptyMapping(env.config.deckSize));
+    }
+
+    private static int[] emptyMapping(int size) {
+        int[] mapping = new int[size];
+        Arrays.fill(mapping, NONE);
+        return mapping;
+    }
+
+    /**
+     * The snapshot is taken only when it is asked for after a change, so placing and removing tokens (the most
+     * frequent changes) only count the change.
+     *
+     * @return - an immutable snapshot of the cards and tokens currently on the table.
+     */
+    public TableSnapshot snapshot() {
+        TableSnapshot latest = snapshot;
+        if (latest.version() == version.get()) return latest;
+        synchronized (this) {
+            // read before the tokens: a token changed meanwhile (concurrent mode) makes the next call take it again
+            long current = version.get();
+            latest = snapshot;
+            if (latest.version() == current) return latest;
+            BitSet[] tokens = new BitSet[slotToCard.length];
+            for (int slot = 0; slot < tokens.length; slot++)
+                tokens[slot] = slotWords != null ? tokenOwners(slotWords.get(slot)) : (BitSet) tokensOnSlot[slot].clone();
+            snapshot = latest = new TableSnapshot(current, slotToCard.clone(), tokens, sets);
+            return latest;
+        }
+    }
+
+    /**
+     * Counts a change of the cards on the table (with the table locked), after updating the set index.
+     */
+    private void cardsChanged() {
+        sets = setIndex.sets();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Queues a change to show on the user interface. Changes are queued with the table locked, or right after the
+     * change of a token in the concurrent mode, so they are shown in the order they were made (a token is never shown
+     * on a slot before its card).
+     */
+    private void show(Runnable change) {
+        uiChanges.add(change);
+    }
+
+    /**
+     * Shows the changes queued so far on the user interface, unless the calling thread holds the table lock (then it
+     * has to call again after releasing it), so no thread waits for the user interface with the table locked.
+     * Only one thread shows changes at a time: a thread that finds another one showing leaves its changes to it.
+     */
+    public void showChanges() {
+        if (Thread.holdsLock(this) || uiChangesRequested.getAndIncrement() != 0) return;
+        int requested = 1;
+        do {
+            for (Runnable change = uiChanges.poll(); change != null; change = uiChanges.poll())
+                change.run();
+            requested = uiChangesRequested.addAndGet(-requested);
+        } while (requested != 0);
     }
 
     /**
      * This method prints all possible legal sets of cards that are currently on the table.
-     * uses
      */
-    public synchronized void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+    public void hints() {
+        TableSnapshot snapshot = snapshot();
+        snapshot.getSets().forEach(set -> {
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
+            List<Integer> slots = Arrays.stream(set).mapToObj(snapshot::slotOf).sorted().collect(Collectors.toList());
             int[][] features = env.util.cardsToFeatures(set);
             System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
         });
     }
 
+    /**
+     * @return - true iff there is a legal set among the cards on the table.
+     */
+    public boolean hasSet() {
+        return snapshot().hasSet();
+    }
+
+    /**
+     * @return - the number of legal sets among the cards on the table.
+     */
+    public int countSets() {
+        return snapshot().getSets().size();
+    }
+
+    /**
+     * @return - the legal sets among the cards on the table (each one contains the card ids of a set).
+     */
+    public List<int[]> getSets() {
+        return snapshot().getSets();
+    }
+
     /**
      * Count the number of cards currently on the table.
      *
      * @return - the number of cards on the table.
      */
-    public synchronized int countCards() {
-        int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
-                ++cards;
-        return cards;
+    public int countCards() {
+        return snapshot().countCards();
     }
 
     /**
@@ -92,35 +273,145 @@ public class Table {
      * @param slot - the slot in which the card should be placed.
      * @post - the card placed is on the table, in the assigned slot.
      */
-    public synchronized void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {
+    public void placeCard(int card, int slot) {
+        synchronized (this) {
+            show(() -> env.ui.placeCard(card, slot));
+            if (slotToCard[slot] != NONE) setIndex.remove(slotToCard[slot]);
+            cardToSlot[card] = slot;
+            slotToCard[slot] = card;
+            emptySlots.clear(slot);
+            setIndex.add(card);
+            if (slotWords != null) slotWords.set(slot, card + 1L);
+            cardsChanged();
         }
-        env.ui.placeCard(card, slot);
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
+        showChanges();
     }
 
     /**
-     * Removes a card from a grid slot on the table.
+     * Places cards on the table in grid slots, with a single update of the user interface.
+     *
+     * @param cards - the card ids to place.
+     * @param slots - the slots in which the cards should be placed (slots[i] is the slot of cards[i]).
+     * @post - the cards placed are on the table, in the assigned slots.
+     */
+    public void placeCards(int[] cards, int[] slots) {
+        synchronized (this) {
+            show(() -> env.ui.placeCards(cards, slots));
+            for (int i = 0; i < slots.length; i++) {
+                if (slotToCard[slots[i]] != NONE) setIndex.remove(slotToCard[slots[i]]);
+                cardToSlot[cards[i]] = slots[i];
+                slotToCard[slots[i]] = cards[i];
+                emptySlots.clear(slots[i]);
+                setIndex.add(cards[i]);
+                if (slotWords != null) slotWords.set(slots[i], cards[i] + 1L);
+            }
+            cardsChanged();
+        }
+        showChanges();
+    }
+
+    /**
+     * Removes all the cards and tokens from the table, with a single update of the user interface.
+     *
+     * @return - the number of tokens each player had on the table.
+     */
+    public int[] clear() {
+        int[] removedTokens = new int[env.config.players];
+        synchronized (this) {
+            int[] slots = new int[slotToCard.length];
+            int size = 0;
+            for (int slot = 0; slot < slotToCard.length; slot++) {
+                if (slotWords != null) {
+                    BitSet owners = tokenOwners(slotWords.getAndSet(slot, 0));
+                    for (int player = owners.nextSetBit(0); player >= 0; player = owners.nextSetBit(player + 1))
+                        ++removedTokens[player];
+                }
+                tokensOnSlot[slot].clear();
+                if (slotToCard[slot] != NONE) {
+                    cardToSlot[slotToCard[slot]] = NONE;
+                    slotToCard[slot] = NONE;
+                    slots[size++] = slot;
+                }
+            }
+            if (slotWords == null) {
+                for (int player = 0; player < removedTokens.length; player++) {
+                    removedTokens[player] = selectedCount[player];
+                    selectedCount[player] = 0;
+                    tokensOfPlayer[player].clear();
+                }
+            }
+            emptySlots.set(0, slotToCard.length);
+            setIndex.clear();
+            int[] removed = Arrays.copyOf(slots, size);
+            cardsChanged();
+            show(env.ui::removeTokens);
+            show(() -> env.ui.removeCards(removed));
+        }
+        showChanges();
+        return removedTokens;
+    }
+
+    /**
+     * Removes a card from a grid slot on the table, together with the tokens placed on it.
      *
      * @param slot - the slot from which to remove the card.
+     * @return - the players that had a token on the slot.
      */
 
-    public synchronized void removeCard(int slot) {
-        if (slotToCard[slot] == null) return;
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {
+    public BitSet removeCard(int slot) {
+        BitSet owners;
+        synchronized (this) {
+            if (slotToCard[slot] == NONE) return new BitSet();
+            owners = take(slot);
+            cardsChanged();
+            show(() -> env.ui.removeCard(slot));
         }
-        for (int i = 0; i < env.config.players; i++) {
-            removeToken(i,slot);
+        showChanges();
+        return owners;
+    }
+
+    /**
+     * Removes cards from grid slots on the table, together with the tokens placed on them, with a single update of the
+     * user interface.
+     *
+     * @param slots - the slots from which to remove the cards (none of them empty).
+     * @return - the players that had a token on each slot (in the order of the slots).
+     */
+    public BitSet[] removeCards(int[] slots) {
+        BitSet[] owners = new BitSet[slots.length];
+        synchronized (this) {
+            for (int i = 0; i < slots.length; i++)
+                owners[i] = take(slots[i]);
+            cardsChanged();
+            show(() -> env.ui.removeCards(slots));
         }
-        cardToSlot[slotToCard[slot]] = null;
-        slotToCard[slot] = null;
-        env.ui.removeCard(slot);
+        showChanges();
+        return owners;
+    }
 
+    /**
+     * Takes the card and the tokens off a slot, without counting the change of cards (see removeCard).
+     *
+     * @return - the players that had a token on the slot.
+     */
+    private BitSet take(int slot) {
+        BitSet owners;
+        if (slotWords != null) {
+            owners = tokenOwners(slotWords.getAndSet(slot, 0));
+            for (int player = owners.nextSetBit(0); player >= 0; player = owners.nextSetBit(player + 1)) {
+                int owner = player;
+                show(() -> env.ui.removeToken(owner, slot));
+            }
+        } else {
+            owners = (BitSet) tokensOnSlot[slot].clone();
+            for (int player = owners.nextSetBit(0); player >= 0; player = owners.nextSetBit(player + 1))
+                removeToken(player, slot);
+        }
+        setIndex.remove(slotToCard[slot]);
+        cardToSlot[slotToCard[slot]] = NONE;
+        slotToCard[slot] = NONE;
+        emptySlots.set(slot);
+        return owners;
     }
 
     /**
@@ -129,15 +420,28 @@ public class Table {
      * @param player - the player the token belongs to.
      * @param slot   - the slot on which to place the token.
      */
-    public synchronized boolean isTokenPlaced(int player, int slot) {
-        return (slotToCard[slot] != null && tokens[slot][player]);
+    public boolean isTokenPlaced(int player, int slot) {
+        if (slotWords != null) return (slotWords.get(slot) & tokenBit(player)) != 0;
+        synchronized (this) {
+            return (slotToCard[slot] != NONE && tokensOfPlayer[player].get(slot));
+        }
     }
 
-    public synchronized void placeToken(int player, int slot) {
-        if (!isSlotEmpty(slot) && !isTokenPlaced(player, slot)) {
-            env.ui.placeToken(player, slot);
-            tokens[slot][player] = true;
+    public void placeToken(int player, int slot) {
+        if (slotWords != null) {
+            updateToken(player, slot, true);
+            return;
+        }
+        synchronized (this) {
+            if (!isSlotEmpty(slot) && !isTokenPlaced(player, slot) && selectedCount[player] < selectedSlots[player].length) {
+                show(() -> env.ui.placeToken(player, slot));
+                tokensOfPlayer[player].set(slot);
+                tokensOnSlot[slot].set(player);
+                selectedSlots[player][selectedCount[player]++] = slot;
+                version.incrementAndGet();
+            }
         }
+        showChanges();
     }
 
     /**
@@ -147,39 +451,221 @@ public class Table {
      * @param slot   - the slot from which to remove the token.
      * @return - true iff a token was successfully removed.
      */
-    public synchronized boolean removeToken(int player, int slot) {
-        if (isTokenPlaced(player, slot)) {
-            env.ui.removeToken(player, slot);
-            tokens[slot][player] = false;
-            return true;
+    public boolean removeToken(int player, int slot) {
+        if (slotWords != null) return updateToken(player, slot, false);
+        boolean removed = false;
+        synchronized (this) {
+            if (isTokenPlaced(player, slot)) {
+                show(() -> env.ui.removeToken(player, slot));
+                tokensOfPlayer[player].clear(slot);
+                tokensOnSlot[slot].clear(player);
+                int[] selected = selectedSlots[player];
+                for (int i = 0; i < selectedCount[player]; ++i) {
+                    if (selected[i] == slot) {
+                        System.arraycopy(selected, i + 1, selected, i, selectedCount[player] - i - 1);
+                        --selectedCount[player];
+                        break;
+                    }
+                }
+                version.incrementAndGet();
+                removed = true;
+            }
+        }
+        showChanges();
+        return removed;
+    }
+
+    /**
+     * Places a token of a player on a grid slot, or removes it if it is already there.
+     *
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot on which to toggle the token.
+     * @return - 1 if a token was placed, -1 if a token was removed and 0 if nothing changed (e.g. the slot is empty).
+     */
+    public int toggleToken(int player, int slot) {
+        if (slotWords == null) {
+            int placed;
+            synchronized (this) {
+                if (removeToken(player, slot)) placed = -1;
+                else {
+                    placeToken(player, slot);
+                    placed = isTokenPlaced(player, slot) ? 1 : 0;
+                }
+            }
+            showChanges();
+            return placed;
+        }
+        long bit = tokenBit(player);
+        long word;
+        do {
+            word = slotWords.get(slot);
+            if ((word & cardMask) == 0) return 0;
+            if ((word & bit) == 0 && !reserveTokenSlot(player, slot)) return 0; // the player has all its tokens out
+        } while (!slotWords.compareAndSet(slot, word, word ^ bit));
+        version.incrementAndGet();
+        if ((word & bit) != 0) show(() -> env.ui.removeToken(player, slot));
+        else placeTokenOnUi(player, slot, bit);
+        showChanges();
+        return (word & bit) != 0 ? -1 : 1;
+    }
+
+    /**
+     * Sets or clears a token bit of a player in the word of a slot (concurrent mode only).
+     *
+     * @return - true iff the token bit was changed.
+     */
+    private boolean updateToken(int player, int slot, boolean place) {
+        long bit = tokenBit(player);
+        long word;
+        do {
+            word = slotWords.get(slot);
+            if ((word & cardMask) == 0 || ((word & bit) != 0) == place) return false;
+            if (place && !reserveTokenSlot(player, slot)) return false;
+        } while (!slotWords.compareAndSet(slot, word, word ^ bit));
+        version.incrementAndGet();
+        if (place) placeTokenOnUi(player, slot, bit);
+        else show(() -> env.ui.removeToken(player, slot));
+        showChanges();
+        return true;
+    }
+
+    /**
+     * Shows a token that was placed without the table lock, and takes it down again if the card was removed
+     * (together with the token) before the token was queued to be shown.
+     */
+    private void placeTokenOnUi(int player, int slot, long bit) {
+        show(() -> env.ui.placeToken(player, slot));
+        if ((slotWords.get(slot) & bit) == 0) show(() -> env.ui.removeToken(player, slot));
+    }
+
+    /**
+     * Reserves an entry of tokenSlots for a token of a player on a slot (concurrent mode only).
+     *
+     * @return - false iff all the entries of the player are taken by tokens on other slots.
+     */
+    private boolean reserveTokenSlot(int player, int slot) {
+        int from = player * env.config.featureSize;
+        int free = NONE;
+        for (int i = from; i < from + env.config.featureSize; i++) {
+            int reserved = tokenSlots.get(i);
+            if (reserved == slot) return true;
+            if (free == NONE && (reserved == NONE || (slotWords.get(reserved) & tokenBit(player)) == 0)) free = i;
+        }
+        if (free == NONE) return false;
+        tokenSlots.set(free, slot);
+        return true;
+    }
+
+    /**
+     * @return - the slots the player has a token on, by the entries of tokenSlots (concurrent mode only).
+     */
+    private int[] tokenSlotsOf(int player) {
+        int[] slots = new int[env.config.featureSize];
+        int size = 0;
+        int from = player * slots.length;
+        for (int i = from; i < from + slots.length; i++) {
+            int slot = tokenSlots.get(i);
+            if (slot != NONE && (slotWords.get(slot) & tokenBit(player)) != 0) slots[size++] = slot;
+        }
+        return Arrays.copyOf(slots, size);
+    }
+
+    private long tokenBit(int player) {
+        return 1L << (tokenShift + player);
+    }
+
+    private BitSet tokenOwners(long word) {
+        return BitSet.valueOf(new long[]{word >>> tokenShift});
+    }
+
+    /**
+     * @param id - the player id.
+     * @return - the cards the player placed tokens on, in the order the tokens were placed (in the concurrent mode, in
+     * no particular order).
+     */
+    public int[] getSetById(int id) {
+        if (slotWords != null) {
+            int[] set = new int[env.config.featureSize];
+            int size = 0;
+            int from = id * set.length;
+            for (int i = from; i < from + set.length; i++) {
+                int slot = tokenSlots.get(i);
+                long word = slot == NONE ? 0 : slotWords.get(slot);
+                if ((word & tokenBit(id)) != 0) set[size++] = (int) (word & cardMask) - 1;
+            }
+            return Arrays.copyOf(set, size);
+        }
+        synchronized (this) {
+            int[] set = new int[selectedCount[id]];
+            for (int i = 0; i < set.length; i++)
+                set[i] = slotToCard[selectedSlots[id][i]];
+            return set;
+        }
+    }
+
+    /**
+     * @param id - the player id.
+     * @return - the slots the player placed tokens on, in the same order as the cards of getSetById.
+     */
+    public int[] getSlotsById(int id) {
+        if (slotWords != null) return tokenSlotsOf(id);
+        synchronized (this) {
+            return Arrays.copyOf(selectedSlots[id], selectedCount[id]);
         }
-        return false;
     }
 
-    public synchronized int[] getSetById(int id) {
-        int[] set = new int[env.config.featureSize];
-        int indx = 0;
-        for (int i = 0; i < tokens.length; i++) {
-            if (tokens[i][id])
-                set[indx++] = slotToCard[i];
+    /**
+     * @param slot - the slot.
+     * @return - the players that placed a token on the slot.
+     */
+    public BitSet getTokenOwners(int slot) {
+        if (slotWords != null) return tokenOwners(slotWords.get(slot));
+        synchronized (this) {
+            return (BitSet) tokensOnSlot[slot].clone();
         }
-        return set;
     }
 
-    public synchronized List<Integer> getCards() {
-        List<Integer> cardList = new LinkedList<>();
-        for (Integer card : slotToCard)
-            if(card != null) cardList.add(card);
-        return cardList;
+    /**
+     * @return - the cards currently on the table (unmodifiable).
+     */
+    public List<Integer> getCards() {
+        return snapshot().getCards();
+    }
+
+    /**
+     * @return - the cards currently on the table, as a set of card ids.
+     */
+    public BitSet getCardSet() {
+        return snapshot().getCardSet();
     }
 
-    public synchronized void resetTokensById(int playerId) {
-        for (int i = 0; i < tokens.length; i++) {
-            removeToken(playerId, i);
+    public void resetTokensById(int playerId) {
+        if (slotWords != null) {
+            for (int slot : tokenSlotsOf(playerId))
+                removeToken(playerId, slot);
+            return;
         }
+        synchronized (this) {
+            while (selectedCount[playerId] > 0) {
+                removeToken(playerId, selectedSlots[playerId][selectedCount[playerId] - 1]);
+            }
+        }
+        showChanges();
     }
 
-    public synchronized boolean isSlotEmpty(int slot) {
-        return slotToCard[slot] == null;
+    public boolean isSlotEmpty(int slot) {
+        if (slotWords != null) return (slotWords.get(slot) & cardMask) == 0;
+        synchronized (this) {
+            return slotToCard[slot] == NONE;
+        }
+    }
+
+    /**
+     * @param from - the slot to start looking from.
+     * @return - the first empty slot from the given one (inclusive), or NONE if there is none.
+     */
+    public synchronized int nextEmptySlot(int from) {
+        int slot = emptySlots.nextSetBit(from);
+        return slot < 0 ? NONE : slot;
     }
 }
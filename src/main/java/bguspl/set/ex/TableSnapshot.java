@@ -0,0 +1,117 @@
+package bguspl.set.ex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class is an immutable copy of the cards and tokens on the table, so it can be read without locking the table.
+ * The table takes a new snapshot when one is asked for after a change, with a version greater than the one of the
+ * snapshot before it, so anything computed from a snapshot may be cached by its version.
+ */
+public final class TableSnapshot {
+
+    /**
+     * The version of the table this snapshot was taken at.
+     */
+    private final long version;
+
+    /**
+     * The card in each slot (Table.NONE if none).
+     */
+    private final int[] slotToCard;
+
+    /**
+     * The players that placed a token on each slot (never modified).
+     */
+    private final BitSet[] tokens;
+
+    /**
+     * The legal sets among the cards on the table (never modified).
+     */
+    private final List<int[]> sets;
+
+    /**
+     * The cards on the table, by slot order.
+     */
+    private final List<Integer> cards;
+
+    TableSnapshot(long version, int[] slotToCard, BitSet[] tokens, List<int[]> sets) {
+        this.version = version;
+        this.slotToCard = slotToCard;
+        this.tokens = tokens;
+        this.sets = sets;
+        List<Integer> cards = new ArrayList<>(slotToCard.length);
+        for (int card : slotToCard)
+            if (card != Table.NONE) cards.add(card);
+        this.cards = Collections.unmodifiableList(cards);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return - the card in the slot (Table.NONE if none).
+     */
+    public int card(int slot) {
+        return slotToCard[slot];
+    }
+
+    /**
+     * @return - the slot the card is in (Table.NONE if none).
+     */
+    public int slotOf(int card) {
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            if (slotToCard[slot] == card) return slot;
+        return Table.NONE;
+    }
+
+    public boolean isSlotEmpty(int slot) {
+        return slotToCard[slot] == Table.NONE;
+    }
+
+    public int countCards() {
+        return cards.size();
+    }
+
+    /**
+     * @return - the cards on the table, by slot order (unmodifiable).
+     */
+    public List<Integer> getCards() {
+        return cards;
+    }
+
+    /**
+     * @return - the cards on the table, as a set of card ids.
+     */
+    public BitSet getCardSet() {
+        BitSet cardSet = new BitSet();
+        for (int card : cards)
+            cardSet.set(card);
+        return cardSet;
+    }
+
+    public boolean isTokenPlaced(int player, int slot) {
+        return tokens[slot].get(player);
+    }
+
+    /**
+     * @return - the players that placed a token on the slot.
+     */
+    public BitSet getTokenOwners(int slot) {
+        return (BitSet) tokens[slot].clone();
+    }
+
+    public boolean hasSet() {
+        return !sets.isEmpty();
+    }
+
+    /**
+     * @return - the legal sets among the cards on the table (unmodifiable, the arrays must not be modified either).
+     */
+    public List<int[]> getSets() {
+        return Collections.unmodifiableList(sets);
+    }
+}
@@ -0,0 +1,37 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class CountdownRendererTest {
+
+    @Test
+    void rendersTheCountdownUntilTheDeadline() throws InterruptedException {
+        Properties properties = new Properties();
+        properties.put("TurnTimeoutSeconds", "2");
+        properties.put("TurnTimeoutWarningSeconds", "1");
+        Logger logger = mock(Logger.class);
+        UserInterface ui = mock(UserInterface.class);
+        CountdownRenderer countdown = new CountdownRenderer(logger, new Config(logger, properties), ui);
+        Thread renderer = new Thread(countdown, "countdown");
+        renderer.start();
+
+        countdown.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1300));
+        verify(ui, timeout(1000)).setCountdown(1000, false);
+        verify(ui, timeout(2000)).setCountdown(0, true);
+        verify(ui, atLeast(2)).setCountdown(anyLong(), eq(true));
+
+        countdown.terminate();
+        renderer.join(1000);
+    }
+}
@@ -0,0 +1,72 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class TableEventPublisherTest {
+
+    @Test
+    void dispose_DeliversAllEventsInOrder() {
+        UserInterface ui = mock(UserInterface.class);
+        TableEventPublisher publisher = new TableEventPublisher(mock(Logger.class), ui);
+        List<TableEvent> events = new CopyOnWriteArrayList<>();
+        publisher.subscribe("recorder", events::add);
+        publisher.subscribe("ui", event -> event.replay(ui));
+
+        for (int slot = 0; slot < 10; slot++) {
+            publisher.placeCard(slot + 20, slot);
+            publisher.placeToken(1, slot);
+        }
+        publisher.placeCards(new int[]{7, 8}, new int[]{10, 11});
+        publisher.setScore(1, 4);
+        publisher.setCountdown(1000, false);
+        publisher.dispose();
+
+        assertEquals(22, events.size());
+        assertEquals(TableEvent.cardPlaced(29, 9).toString(), events.get(18).toString());
+        assertEquals(TableEvent.Type.TOKEN_PLACED, events.get(19).type);
+        assertArrayEquals(new int[]{10, 11}, events.get(20).slots());
+        assertEquals(4, events.get(21).value);
+        verify(ui).setCountdown(1000, false);
+        InOrder order = inOrder(ui);
+        order.verify(ui).placeCards(new int[]{7, 8}, new int[]{10, 11});
+        order.verify(ui).setScore(1, 4);
+        order.verify(ui).dispose();
+    }
+
+    @Test
+    void publish_DropsEventsOfAFullOptionalSubscriber() {
+        UserInterface ui = mock(UserInterface.class);
+        TableEventPublisher publisher = new TableEventPublisher(mock(Logger.class), ui);
+        List<TableEvent> events = new CopyOnWriteArrayList<>();
+        CountDownLatch stuck = new CountDownLatch(1);
+        publisher.subscribe("slow", 1, event -> {
+            try {
+                stuck.await();
+            } catch (InterruptedException ignored) {
+            }
+            events.add(event);
+        });
+
+        // the subscriber takes at most one event and one more waits in its buffer, the rest are dropped
+        for (int slot = 0; slot < 10; slot++)
+            publisher.placeToken(0, slot);
+        stuck.countDown();
+        publisher.dispose();
+
+        assertTrue(events.size() >= 1 && events.size() <= 2);
+        assertEquals(TableEvent.Type.TOKEN_PLACED, events.get(0).type);
+    }
+}
@@ -0,0 +1,197 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    private static Config config(int featureCount, int featureSize) {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        return new Config(new MockLogger(), properties);
+    }
+
+    @Test
+    void testSet_DefaultConfig() {
+        Util util = new UtilImpl(config(4, 3));
+
+        // 0000, 1111, 2222 - all features are different
+        assertTrue(util.testSet(new int[]{0, 40, 80}));
+        // 0000, 0001, 0002 - three features are the same and one is different
+        assertTrue(util.testSet(new int[]{0, 1, 2}));
+        // 0000, 0001, 0011 - the last feature is neither
+        assertFalse(util.testSet(new int[]{0, 1, 4}));
+        assertEquals(80, util.completeSet(new int[]{0, 40}));
+        assertEquals(2, util.completeSet(new int[]{1, 0}));
+    }
+
+    @Test
+    void testSet_FeaturesDoNotFitInALong() {
+        Config config = config(3, 22);
+        Util util = new UtilImpl(config);
+
+        int[] same = util.cardToFeatures(5);
+        assertTrue(same[0] == 0 && same[1] == 0 && same[2] == 5);
+        // all 22 cards with the same first two features form a set
+        int[] cards = new int[config.featureSize];
+        for (int i = 0; i < cards.length; ++i) cards[i] = i;
+        assertTrue(util.testSet(cards));
+        assertEquals(cards.length - 1, util.completeSet(Arrays.copyOf(cards, cards.length - 1)));
+        cards[cards.length - 1] = 0;
+        assertFalse(util.testSet(cards));
+        cards[1] = 0;
+        assertEquals(-1, util.completeSet(Arrays.copyOf(cards, cards.length - 1)));
+    }
+
+    private static List<Integer> wholeDeck(Config config) {
+        return IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+    }
+
+    private static int countSetsByBruteForce(Util util, List<Integer> deck, int size) {
+        int[] set = new int[size];
+        return countSetsByBruteForce(util, deck, set, 0, 0);
+    }
+
+    private static int countSetsByBruteForce(Util util, List<Integer> deck, int[] set, int depth, int from) {
+        if (depth == set.length) return util.testSet(set) ? 1 : 0;
+        int sets = 0;
+        for (int i = from; i <= deck.size() - (set.length - depth); ++i) {
+            set[depth] = deck.get(i);
+            sets += countSetsByBruteForce(util, deck, set, depth + 1, i + 1);
+        }
+        return sets;
+    }
+
+    @Test
+    void findSets_WholeDefaultDeck() {
+        Config config = config(4, 3);
+        Util util = new UtilImpl(config);
+
+        List<int[]> sets = util.findSets(wholeDeck(config), Integer.MAX_VALUE);
+        assertEquals(1080, sets.size());
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+        assertEquals(1, util.findSets(wholeDeck(config), 1).size());
+    }
+
+    @Test
+    void findSets_MatchesBruteForce() {
+        for (int[] dimensions : new int[][]{{3, 4}, {2, 5}, {3, 2}, {1, 3}}) {
+            Config config = config(dimensions[0], dimensions[1]);
+            Util util = new UtilImpl(config);
+            List<Integer> deck = wholeDeck(config).subList(0, config.deckSize * 3 / 4);
+
+            assertEquals(countSetsByBruteForce(util, deck, config.featureSize),
+                    util.findSets(deck, Integer.MAX_VALUE).size());
+        }
+    }
+
+    @Test
+    void findSets_Parallel() {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", "5");
+        properties.put("ParallelSearchCards", "0");
+        Config config = new Config(new MockLogger(), properties);
+        Util parallel = new ParallelUtilImpl(config);
+
+        List<int[]> sets = parallel.findSets(wholeDeck(config), Integer.MAX_VALUE);
+        assertEquals(new UtilImpl(config).findSets(wholeDeck(config), Integer.MAX_VALUE).size(), sets.size());
+        sets.forEach(set -> assertTrue(parallel.testSet(set)));
+        assertEquals(1, parallel.findSets(wholeDeck(config), 1).size());
+        assertEquals(7, parallel.findSets(wholeDeck(config), 7).size());
+    }
+
+    @Test
+    void overloads_AgreeWithFindSets() {
+        Config config = config(4, 3);
+        Util util = new UtilImpl(config);
+        int[] cards = {80, 0, 40, 1, 2, 4, 13, 26, 39, 52, 65, 78};
+        BitSet bits = new BitSet();
+        for (int card : cards) bits.set(card);
+        int sets = util.findSets(IntStream.of(cards).boxed().collect(Collectors.toList()), Integer.MAX_VALUE).size();
+
+        assertEquals(sets, util.findSets(cards, Integer.MAX_VALUE).size());
+        assertEquals(sets, util.findSets(bits, Integer.MAX_VALUE).size());
+        assertEquals(sets, util.countSets(cards, Integer.MAX_VALUE));
+        assertEquals(sets, util.countSets(bits, Integer.MAX_VALUE));
+        assertEquals(1, util.countSets(cards, 1));
+        assertEquals(sets, util.streamSets(cards).count());
+        assertEquals(80, cards[0]); // the input is not modified
+    }
+
+    @Test
+    void streamSets_IsLazyAndSplittable() {
+        Config config = config(4, 3);
+        Util util = new UtilImpl(config);
+        int[] deck = IntStream.range(0, config.deckSize).toArray();
+
+        assertEquals(5, util.streamSets(deck).limit(5).count());
+        assertEquals(1080, util.streamSets(deck).parallel().filter(util::testSet).count());
+    }
+
+    @Test
+    void testSets_MatchesTestSet() {
+        for (int[] dimensions : new int[][]{{4, 3}, {3, 4}, {2, 40}}) {
+            Config config = config(dimensions[0], dimensions[1]);
+            Util util = new UtilImpl(config);
+            Random random = new Random(config.deckSize);
+            int candidates = 200;
+            int[] cards = new int[candidates * config.featureSize];
+            for (int i = 0; i < candidates; ++i) {
+                // make every other candidate a legal set
+                for (int j = 0; j < config.featureSize - 1; ++j)
+                    cards[i * config.featureSize + j] = (i * config.featureSize + j) % config.deckSize;
+                int[] partial = Arrays.copyOfRange(cards, i * config.featureSize, (i + 1) * config.featureSize - 1);
+                int missing = util.completeSet(partial);
+                cards[(i + 1) * config.featureSize - 1] = i % 2 == 0 && missing >= 0 ? missing : random.nextInt(config.deckSize);
+            }
+
+            long[] legal = new long[(candidates + Long.SIZE - 1) / Long.SIZE];
+            int sets = util.testSets(cards, legal);
+            int expected = 0;
+            for (int i = 0; i < candidates; ++i) {
+                boolean set = util.testSet(Arrays.copyOfRange(cards, i * config.featureSize, (i + 1) * config.featureSize));
+                assertEquals(set, (legal[i / Long.SIZE] & (1L << i)) != 0);
+                if (set) ++expected;
+            }
+            assertEquals(expected, sets);
+            assertTrue(sets > 0);
+        }
+    }
+
+    @Test
+    void findSets_InBatches() {
+        for (int[] dimensions : new int[][]{{2, 33}, {4, 2}, {7, 2}, {3, 1}}) {
+            Properties properties = new Properties();
+            properties.put("FeatureCount", Integer.toString(dimensions[0]));
+            properties.put("FeatureSize", Integer.toString(dimensions[1]));
+            properties.put("BitSlicedTestCandidates", "0");
+            Config config = new Config(new MockLogger(), properties);
+            Util util = new UtilImpl(config);
+            List<Integer> deck = wholeDeck(config).subList(0, Math.min(config.deckSize, config.featureSize > 3 ? config.featureSize + 2 : 100));
+
+            List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+            assertEquals(countSetsByBruteForce(util, deck, config.featureSize), sets.size());
+            sets.forEach(set -> assertTrue(util.testSet(set)));
+            assertEquals(Math.min(sets.size(), 3), util.countSets(deck.stream().mapToInt(i -> i).toArray(), 3));
+        }
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClaimQueueTest {
+
+    @Test
+    void claimsArePolledInOrderOnce() {
+        ClaimQueue claims = new ClaimQueue(4);
+        assertTrue(claims.offer(2));
+        assertTrue(claims.offer(0));
+        assertFalse(claims.offer(2));
+        assertEquals(2, claims.poll());
+        assertTrue(claims.offer(2));
+        assertEquals(0, claims.poll());
+        assertEquals(2, claims.poll());
+        assertEquals(Table.NONE, claims.poll());
+        assertTrue(claims.isEmpty());
+    }
+
+    @Test
+    void claimsKeepTheirStamps() {
+        ClaimQueue claims = new ClaimQueue(2);
+        claims.offer(1, 20);
+        claims.offer(0, 10);
+        assertEquals(1, claims.poll());
+        assertEquals(20, claims.stamp());
+        assertEquals(0, claims.poll());
+        assertEquals(10, claims.stamp());
+    }
+
+    @Test
+    void withdrawnClaimsAreSkipped() {
+        ClaimQueue claims = new ClaimQueue(4);
+        claims.offer(1);
+        claims.offer(3);
+        claims.withdraw(1);
+        assertEquals(3, claims.poll());
+        assertEquals(Table.NONE, claims.poll());
+
+        // claiming again after a withdrawal queues the claim once
+        claims.offer(1);
+        claims.withdraw(1);
+        claims.offer(1);
+        assertEquals(1, claims.poll());
+        assertEquals(Table.NONE, claims.poll());
+    }
+
+    @Test
+    void claimsMadeAgainAfterAWithdrawalKeepTheirStamps() {
+        ClaimQueue claims = new ClaimQueue(2);
+        claims.offer(1, 100);
+        claims.withdraw(1);
+        claims.offer(0, 150);
+        claims.offer(1, 200);
+        assertEquals(0, claims.poll());
+        assertEquals(150, claims.stamp());
+        assertEquals(1, claims.poll());
+        assertEquals(200, claims.stamp());
+        assertEquals(Table.NONE, claims.poll());
+    }
+
+    @Test
+    void awaitSeesClaimsOfAllProducers() {
+        int players = 64;
+        ClaimQueue claims = new ClaimQueue(players);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < players; i++) {
+            int player = i;
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ignored) {
+                }
+                claims.offer(player);
+            }).start();
+        }
+        start.countDown();
+        Set<Integer> taken = ConcurrentHashMap.newKeySet();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (taken.size() < players && deadline - System.nanoTime() > 0) {
+            claims.await(deadline);
+            for (int player = claims.poll(); player != Table.NONE; player = claims.poll())
+                assertTrue(taken.add(player));
+        }
+        assertEquals(players, taken.size());
+        assertEquals(Table.NONE, claims.poll());
+    }
+}
@@ -0,0 +1,42 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DealerSchedulerTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void rescheduledDeadlineReplacesTheOldOne() {
+        ClaimQueue claims = new ClaimQueue(2);
+        DealerScheduler scheduler = new DealerScheduler(claims);
+        long now = System.nanoTime();
+        scheduler.schedule(DealerScheduler.Event.TIMEOUT, now + 10 * MILLI);
+        scheduler.schedule(DealerScheduler.Event.TIMEOUT, now + 30 * MILLI);
+
+        assertEquals(DealerScheduler.Event.TIMEOUT, scheduler.next());
+        assertTrue(System.nanoTime() - now >= 30 * MILLI);
+    }
+
+    @Test
+    void claimsAndWakeupsComeBeforeDeadlines() throws InterruptedException {
+        ClaimQueue claims = new ClaimQueue(2);
+        DealerScheduler scheduler = new DealerScheduler(claims);
+        long now = System.nanoTime();
+        scheduler.schedule(DealerScheduler.Event.TIMEOUT, now + TimeUnit.SECONDS.toNanos(10));
+
+        Thread player = new Thread(() -> claims.offer(1));
+        player.start();
+        assertEquals(DealerScheduler.Event.CLAIM, scheduler.next());
+        assertEquals(1, claims.poll());
+        player.join();
+
+        scheduler.wake();
+        assertEquals(DealerScheduler.Event.WAKEUP, scheduler.next());
+        assertTrue(System.nanoTime() - now < TimeUnit.SECONDS.toNanos(10));
+    }
+}
@@ -0,0 +1,62 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeckTest {
+
+    @Test
+    void drawsEveryCardOnce() {
+        Deck deck = new Deck(81);
+        BitSet drawn = new BitSet();
+        for (int card : deck.draw(12))
+            drawn.set(card);
+        assertEquals(12, drawn.cardinality());
+        assertEquals(69, deck.size());
+
+        while (!deck.isEmpty())
+            assertFalse(drawn.get(deck.draw()));
+        assertEquals(Table.NONE, deck.draw());
+        assertEquals(0, deck.draw(3).length);
+    }
+
+    @Test
+    void takesGivenCards() {
+        Deck deck = new Deck(5);
+        assertTrue(deck.take(3));
+        assertFalse(deck.take(3));
+        assertFalse(deck.contains(3));
+        assertTrue(deck.contains(4));
+        assertTrue(deck.take(4));
+        deck.add(3);
+        int[] cards = deck.toArray();
+        Arrays.sort(cards);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, cards);
+        for (int card : cards)
+            assertTrue(deck.take(card));
+        assertTrue(deck.isEmpty());
+    }
+
+    @Test
+    void returnedCardsCanBeDrawnAgain() {
+        Deck deck = new Deck(4);
+        int[] all = deck.draw(5);
+        assertEquals(4, all.length);
+
+        BitSet returned = new BitSet();
+        returned.set(all[0]);
+        returned.set(all[2]);
+        deck.addAll(returned);
+
+        int[] cards = deck.toArray();
+        Arrays.sort(cards);
+        assertArrayEquals(returned.stream().toArray(), cards);
+        BitSet inDeck = new BitSet();
+        deck.addTo(inDeck);
+        assertEquals(returned, inDeck);
+    }
+}
@@ -0,0 +1,105 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SetGuaranteeTest {
+
+    private Env env;
+    private Util util;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", "4");
+        properties.put("FeatureSize", "3");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        util = new UtilImpl(config);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), util);
+    }
+
+    private Deck deckOf(int... cards) {
+        Deck deck = new Deck(env.config.deckSize);
+        BitSet kept = cardsOf(cards);
+        for (int card = 0; card < env.config.deckSize; card++)
+            if (!kept.get(card)) deck.take(card);
+        return deck;
+    }
+
+    private static BitSet cardsOf(int... cards) {
+        BitSet set = new BitSet();
+        for (int card : cards)
+            set.set(card);
+        return set;
+    }
+
+    /**
+     * @return - a card that is not one of the given cards and makes no set with any of them.
+     */
+    private int cardWithoutSet(int... cards) {
+        int sets = util.countSets(cardsOf(cards), Integer.MAX_VALUE);
+        for (int card = 0; card < env.config.deckSize; card++) {
+            BitSet set = cardsOf(cards);
+            if (set.get(card)) continue;
+            set.set(card);
+            if (util.countSets(set, Integer.MAX_VALUE) == sets) return card;
+        }
+        throw new AssertionError("no card without a set");
+    }
+
+    @Test
+    void draw_ExchangesACardToCompleteASet() {
+        int missing = util.completeSet(new int[]{0, 1});
+        int other = cardWithoutSet(0, 1);
+        for (int i = 0; i < 20; i++) {
+            Deck deck = deckOf(missing, other);
+            assertArrayEquals(new int[]{missing}, new SetGuarantee(env, deck).draw(1, cardsOf(0, 1), false));
+            assertArrayEquals(new int[]{other}, deck.toArray());
+        }
+    }
+
+    @Test
+    void draw_ExchangesTwoCardsToCompleteASet() {
+        int missing = util.completeSet(new int[]{0, 1});
+        int first = cardWithoutSet(0, 1, missing);
+        int second = cardWithoutSet(0, 1, missing, first);
+        for (int i = 0; i < 20; i++) {
+            Deck deck = deckOf(1, missing, first, second);
+            int[] drawn = new SetGuarantee(env, deck).draw(2, cardsOf(0), false);
+            Arrays.sort(drawn);
+            assertArrayEquals(cardsOf(1, missing).stream().toArray(), drawn);
+            assertEquals(cardsOf(first, second), cardsOf(deck.toArray()));
+        }
+    }
+
+    @Test
+    void draw_KeepsRandomCardsWhenTheTableHasASet() {
+        int missing = util.completeSet(new int[]{0, 1});
+        int other = cardWithoutSet(0, 1);
+        BitSet drawn = new BitSet();
+        for (int i = 0; i < 50; i++)
+            drawn.or(cardsOf(new SetGuarantee(env, deckOf(missing, other)).draw(1, cardsOf(0, 1), true)));
+        assertTrue(drawn.get(other));
+    }
+
+    @Test
+    void draw_KeepsCardsWhenTheDeckCannotCompleteASet() {
+        int first = cardWithoutSet(0, 1);
+        int second = cardWithoutSet(0, 1, first);
+        Deck deck = deckOf(first, second);
+        int[] drawn = new SetGuarantee(env, deck).draw(2, cardsOf(0, 1), false);
+        assertEquals(cardsOf(first, second), cardsOf(drawn));
+        assertTrue(deck.isEmpty());
+    }
+}
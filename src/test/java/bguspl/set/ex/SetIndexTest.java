@@ -0,0 +1,47 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SetIndexTest {
+
+    private static void assertMatchesSearch(int featureCount, int featureSize) {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        Util util = new UtilImpl(config);
+        SetIndex index = new SetIndex(new Env(logger, config, new TableTest.MockUserInterface(), util));
+
+        Random random = new Random(config.deckSize);
+        BitSet cards = new BitSet();
+        for (int i = 0; i < 500; ++i) {
+            int card = random.nextInt(config.deckSize);
+            if (cards.get(card) || cards.cardinality() > 15) {
+                cards.clear(card);
+                index.remove(card);
+            } else {
+                cards.set(card);
+                index.add(card);
+            }
+            assertEquals(util.countSets(cards, Integer.MAX_VALUE), index.count());
+        }
+    }
+
+    @Test
+    void count_MatchesSearch() {
+        assertMatchesSearch(4, 3);
+        assertMatchesSearch(3, 4);
+        assertMatchesSearch(5, 2);
+    }
+}
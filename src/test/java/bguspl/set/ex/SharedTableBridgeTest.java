@@ -0,0 +1,101 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class SharedTableBridgeTest {
+
+    @TempDir
+    Path directory;
+
+    private Table table;
+    private Player[] players;
+    private SharedTableBridge bridge;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("SharedTableFile", directory.resolve("table").toString());
+        properties.put("SharedCommandsFile", directory.resolve("commands").toString());
+        properties.put("SharedCommandsCapacity", "4");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Env env = new Env(logger, new Config(logger, properties), new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        table = new Table(env);
+        players = new Player[]{mock(Player.class), mock(Player.class)};
+        bridge = new SharedTableBridge(env, table, players);
+    }
+
+    private MappedByteBuffer map(String name) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(name).toFile(), "rw")) {
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+            buffer.order(ByteOrder.nativeOrder());
+            return buffer;
+        }
+    }
+
+    @Test
+    void mirror_WritesCardsAndTokens() throws IOException {
+        table.placeCard(7, 2);
+        table.placeToken(1, 2);
+        bridge.mirror(table.snapshot());
+
+        MappedByteBuffer file = map("table");
+        assertEquals(2, file.getLong(0));
+        assertEquals(table.snapshot().version(), file.getLong(8));
+        assertEquals(4, file.getInt(16));
+        assertEquals(-1, file.getInt(32));
+        assertEquals(7, file.getInt(32 + 2 * 16));
+        assertEquals(2L, file.getLong(32 + 2 * 16 + 8));
+    }
+
+    @Test
+    void handleCommands_PressesKeysInOrder() throws IOException {
+        MappedByteBuffer file = map("commands");
+        for (int index = 0; index < 5; index++) {
+            int offset = 64 + (index % 4) * 16;
+            if (index == 4) {
+                bridge.handleCommands();
+                assertEquals(4, file.getLong(8));
+            }
+            file.putInt(offset + 8, index % 2);
+            file.putInt(offset + 12, index % 4);
+            file.putLong(offset, index + 1);
+        }
+        bridge.handleCommands();
+
+        assertEquals(5, file.getLong(8));
+        verify(players[0], times(2)).tryKeyPressed(0);
+        verify(players[0]).tryKeyPressed(2);
+        verify(players[1]).tryKeyPressed(1);
+        verify(players[1]).tryKeyPressed(3);
+    }
+
+    @Test
+    void handleCommands_WaitsForUnwrittenCommands() throws IOException {
+        map("commands").putLong(64 + 16, 2);
+        bridge.handleCommands();
+
+        verifyNoInteractions(players[0], players[1]);
+    }
+}
@@ -7,22 +7,31 @@ import bguspl.set.Util;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
-    private Integer[] slotToCard;
-    private Integer[] cardToSlot;
+    private int[] slotToCard;
+    private int[] cardToSlot;
+    private Properties properties;
 
     @BeforeEach
     void setUp() {
 
-        Properties properties = new Properties();
+        properties = new Properties();
         properties.put("Rows", "2");
         properties.put("Columns", "2");
         properties.put("FeatureSize", "3");
@@ -32,34 +41,41 @@ class TableTest {
         properties.put("PlayerKeys2", "85,73,79,80");
         MockLogger logger = new MockLogger();
         Config config = new Config(logger, properties);
-        slotToCard = new Integer[config.tableSize];
-        cardToSlot = new Integer[config.deckSize];
+        slotToCard = new int[config.tableSize];
+        cardToSlot = new int[config.deckSize];
+        Arrays.fill(slotToCard, Table.NONE);
+        Arrays.fill(cardToSlot, Table.NONE);
 
         Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
     }
 
+    private Table concurrentTable() {
+        properties.put("ConcurrentTable", "True");
+        MockLogger logger = new MockLogger();
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
+        return new Table(env, slotToCard, cardToSlot);
+    }
+
     private int fillSomeSlots() {
-        slotToCard[1] = 3;
-        slotToCard[2] = 5;
-        cardToSlot[3] = 1;
-        cardToSlot[5] = 2;
+        table.placeCard(3, 1);
+        table.placeCard(5, 2);
 
         return 2;
     }
 
     private void fillAllSlots() {
         for (int i = 0; i < slotToCard.length; ++i) {
-            slotToCard[i] = i;
-            cardToSlot[i] = i;
+            table.placeCard(i, i);
         }
     }
 
     private void placeSomeCardsAndAssert() throws InterruptedException {
         table.placeCard(8, 2);
 
-        assertEquals(8, (int) slotToCard[2]);
-        assertEquals(2, (int) cardToSlot[8]);
+        assertEquals(8, slotToCard[2]);
+        assertEquals(2, cardToSlot[8]);
     }
 
     @Test
@@ -95,6 +111,134 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void removeCard_RemovesTokensOfAllPlayers() {
+        table.placeCard(3, 1);
+        table.placeCard(5, 2);
+        table.placeToken(0, 1);
+        table.placeToken(0, 2);
+        table.placeToken(1, 2);
+
+        assertArrayEquals(new int[]{3, 5}, table.getSetById(0));
+        assertEquals(2, table.getTokenOwners(2).cardinality());
+
+        table.removeCard(2);
+
+        assertArrayEquals(new int[]{3}, table.getSetById(0));
+        assertArrayEquals(new int[0], table.getSetById(1));
+        assertEquals(2, table.nextEmptySlot(1));
+        assertEquals(Table.NONE, cardToSlot[5]);
+    }
+
+    @Test
+    void removeCards_ReturnsTokenOwnersOfEachSlot() {
+        table.placeCards(new int[]{3, 5, 7}, new int[]{0, 1, 3});
+        table.placeToken(0, 0);
+        table.placeToken(0, 1);
+        table.placeToken(1, 1);
+        table.placeToken(1, 3);
+
+        BitSet[] owners = table.removeCards(new int[]{0, 1});
+
+        assertEquals(BitSet.valueOf(new long[]{0b01}), owners[0]);
+        assertEquals(BitSet.valueOf(new long[]{0b11}), owners[1]);
+        assertEquals(1, table.countCards());
+        assertArrayEquals(new int[0], table.getSetById(0));
+        assertArrayEquals(new int[]{7}, table.getSetById(1));
+        assertEquals(0, table.nextEmptySlot(0));
+        assertEquals(Table.NONE, cardToSlot[3]);
+    }
+
+    @Test
+    void clear_RemovesAllCardsAndTokens() {
+        table.placeCards(new int[]{3, 5, 7}, new int[]{0, 1, 3});
+        table.placeToken(0, 1);
+        table.placeToken(1, 1);
+        table.placeToken(1, 3);
+
+        assertEquals(3, table.countCards());
+        assertArrayEquals(new int[]{1, 2}, table.clear());
+        assertEquals(0, table.countCards());
+        assertEquals(0, table.nextEmptySlot(0));
+        assertArrayEquals(new int[0], table.getSetById(1));
+        assertEquals(Table.NONE, cardToSlot[7]);
+    }
+
+    @Test
+    void snapshot_IsNotChangedByLaterChanges() {
+        table.placeCard(3, 1);
+        TableSnapshot snapshot = table.snapshot();
+        table.placeToken(0, 1);
+        table.removeCard(1);
+
+        assertEquals(3, snapshot.card(1));
+        assertFalse(snapshot.isTokenPlaced(0, 1));
+        assertEquals(1, snapshot.countCards());
+        assertTrue(snapshot.version() < table.snapshot().version());
+        assertEquals(0, table.snapshot().countCards());
+    }
+
+    @Test
+    void snapshot_IsTakenAgainOnlyAfterAChange() {
+        table.placeCard(3, 1);
+        TableSnapshot snapshot = table.snapshot();
+        assertSame(snapshot, table.snapshot());
+
+        table.toggleToken(0, 1);
+        TableSnapshot toggled = table.snapshot();
+        assertNotSame(snapshot, toggled);
+        assertTrue(toggled.isTokenPlaced(0, 1));
+        assertSame(toggled, table.snapshot());
+    }
+
+    @Test
+    void toggleToken_ConcurrentTable() throws InterruptedException {
+        fillAllSlots();
+        Table table = concurrentTable();
+        Thread[] players = new Thread[2];
+        for (int i = 0; i < players.length; i++) {
+            int player = i;
+            players[i] = new Thread(() -> {
+                for (int press = 0; press < 1001; press++)
+                    table.toggleToken(player, press % 2);
+            });
+            players[i].start();
+        }
+        for (Thread player : players)
+            player.join();
+
+        assertTrue(table.isTokenPlaced(0, 0));
+        assertEquals(2, table.getTokenOwners(0).cardinality());
+        assertArrayEquals(new int[]{0}, table.getSetById(1));
+
+        assertEquals(2, table.removeCard(0).cardinality());
+        assertFalse(table.isTokenPlaced(0, 0));
+        assertEquals(0, table.toggleToken(0, 0));
+        assertEquals(1, table.toggleToken(0, 1));
+    }
+
+    @Test
+    void getSlotsById_ConcurrentTable() {
+        fillAllSlots();
+        Table table = concurrentTable();
+        table.placeToken(0, 3);
+        table.placeToken(0, 1);
+        table.placeToken(0, 0);
+        assertEquals(0, table.toggleToken(0, 2)); // all the tokens of the player are out
+
+        table.removeCard(1);
+        table.placeCard(1, 1);
+        assertEquals(1, table.toggleToken(0, 2));
+        int[] slots = table.getSlotsById(0);
+        Arrays.sort(slots);
+        assertArrayEquals(new int[]{0, 2, 3}, slots);
+        assertEquals(3, table.getSetById(0).length);
+
+        table.resetTokensById(0);
+        assertArrayEquals(new int[0], table.getSlotsById(0));
+        assertFalse(table.isTokenPlaced(0, 3));
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -103,6 +247,10 @@ class TableTest {
         @Override
         public void removeCard(int slot) {}
         @Override
+        public void placeCards(int[] cards, int[] slots) {}
+        @Override
+        public void removeCards(int[] slots) {}
+        @Override
         public void setCountdown(long millies, boolean warn) {}
         @Override
         public void setElapsed(long millies) {}
@@ -138,11 +286,46 @@ class TableTest {
             return false;
         }
 
+        @Override
+        public int testSets(int[] cards, long[] legal) {
+            return 0;
+        }
+
+        @Override
+        public int completeSet(int[] cards) {
+            return -1;
+        }
+
         @Override
         public List<int[]> findSets(List<Integer> deck, int count) {
             return null;
         }
 
+        @Override
+        public List<int[]> findSets(int[] cards, int count) {
+            return null;
+        }
+
+        @Override
+        public List<int[]> findSets(BitSet cards, int count) {
+            return null;
+        }
+
+        @Override
+        public int countSets(int[] cards, int max) {
+            return 0;
+        }
+
+        @Override
+        public int countSets(BitSet cards, int max) {
+            return 0;
+        }
+
+        @Override
+        public Stream<int[]> streamSets(int[] cards) {
+            return null;
+        }
+
         @Override
         public void spin() {}
     }